@@ -0,0 +1,364 @@
+package ru.ssau.todo.repository;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import ru.ssau.todo.entity.Task;
+import ru.ssau.todo.entity.TaskStatus;
+import ru.ssau.todo.exception.TaskBusinessException;
+import ru.ssau.todo.exception.TaskNotFoundException;
+
+/**
+ * Хранилище задач в памяти по столбцам: владелец, время создания (epoch millis, UTC),
+ * статус и ссылка на заголовок лежат в отдельных буферах примитивов, заголовки —
+ * подряд в общей области байт UTF-8. Id выдаются по порядку и не переиспользуются,
+ * поэтому номер строки — это {@code id - 1} и отдельная карта id → задача не нужна.
+ * Объекты {@link Task} создаются только при чтении.
+ *
+ * <p>На задачу уходит 29 байт плюс длина заголовка (8 владелец, 8 время, 1 статус,
+ * 4 + 4 ссылка на заголовок, 4 индекс по владельцу) — против сотни с лишним байт
+ * на Task, LocalDateTime, Long и запись HashMap в {@link TaskInMemoryRepository}.
+ *
+ * <p>Строки одного владельца связаны в список от новых к старым (столбец
+ * {@code prevByOwner} и последняя строка владельца в карте), поэтому выборка
+ * пользователя проходит только его строки, а не всё хранилище.
+ * При {@code tasks.columnar.off-heap=true} буферы выделяются вне кучи
+ * (direct ByteBuffer, ограничены -XX:MaxDirectMemorySize) и не нагружают сборщик мусора.
+ *
+ * <p>Удалённые строки помечаются статусом -1, место под них не освобождается;
+ * старые заголовки после update тоже остаются в области байт.
+ */
+@Repository
+@Profile("columnar")
+public class TaskColumnarRepository implements TaskRepository {
+
+    private static final byte DELETED = -1;
+    // createdBy == null
+    private static final long NO_OWNER = Long.MIN_VALUE;
+    private static final TaskStatus[] STATUSES = TaskStatus.values();
+    // Максимум строк, при котором смещения в столбцах long ещё помещаются в int
+    private static final int MAX_ROWS = Integer.MAX_VALUE / Long.BYTES;
+    // Границы, в которых epoch millis помещаются в long; LocalDateTime.MIN/MAX за них выходят
+    private static final LocalDateTime MIN_DATE_TIME =
+            LocalDateTime.ofInstant(Instant.ofEpochMilli(Long.MIN_VALUE), ZoneOffset.UTC);
+    private static final LocalDateTime MAX_DATE_TIME =
+            LocalDateTime.ofInstant(Instant.ofEpochMilli(Long.MAX_VALUE), ZoneOffset.UTC);
+
+    private final boolean offHeap;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Столбцы, строка i — задача с id = i + 1
+    private ByteBuffer owners;       // long
+    private ByteBuffer createdAts;   // long, epoch millis
+    private ByteBuffer statuses;     // byte, ordinal или DELETED
+    private ByteBuffer titleOffsets; // int
+    private ByteBuffer titleLengths; // int
+    private ByteBuffer prevByOwner;  // int, предыдущая строка того же владельца или -1
+    private ByteBuffer titles;
+
+    private int capacity;
+    private int size;
+    private int titlesSize;
+
+    private final OwnerInts activeByOwner = new OwnerInts();
+    // Последняя строка владельца + 1; 0 — строк нет
+    private final OwnerInts lastRowByOwner = new OwnerInts();
+
+    public TaskColumnarRepository(@Value("${tasks.columnar.off-heap:false}") boolean offHeap,
+                                  @Value("${tasks.columnar.initial-capacity:1024}") int initialCapacity) {
+        this.offHeap = offHeap;
+        this.capacity = Math.min(Math.max(initialCapacity, 16), MAX_ROWS);
+        this.owners = allocate(capacity * Long.BYTES);
+        this.createdAts = allocate(capacity * Long.BYTES);
+        this.statuses = allocate(capacity);
+        this.titleOffsets = allocate(capacity * Integer.BYTES);
+        this.titleLengths = allocate(capacity * Integer.BYTES);
+        this.prevByOwner = allocate(capacity * Integer.BYTES);
+        this.titles = allocate(capacity * 32);
+    }
+
+    @Override
+    public Task create(Task task) {
+        if (task == null || task.getTitle() == null || task.getTitle().isBlank() || task.getStatus() == null) {
+            throw new TaskBusinessException("Invalid task data");
+        }
+        // Храним с точностью до миллисекунды — сразу отдаём то же значение, что прочитаем потом
+        LocalDateTime createdAt = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        long owner = task.getCreatedBy() == null ? NO_OWNER : task.getCreatedBy();
+
+        lock.writeLock().lock();
+        try {
+            if (size == capacity) {
+                growRows();
+            }
+            int row = size++;
+            owners.putLong(row * Long.BYTES, owner);
+            createdAts.putLong(row * Long.BYTES, toMillis(createdAt));
+            statuses.put(row, (byte) task.getStatus().ordinal());
+            writeTitle(row, task.getTitle());
+            if (owner != NO_OWNER) {
+                prevByOwner.putInt(row * Integer.BYTES, lastRowByOwner.get(owner) - 1);
+                lastRowByOwner.put(owner, row + 1);
+                if (isActive(task.getStatus())) {
+                    activeByOwner.add(owner, 1);
+                }
+            } else {
+                prevByOwner.putInt(row * Integer.BYTES, -1);
+            }
+            task.setId(row + 1L);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        task.setCreatedAt(createdAt);
+        return task;
+    }
+
+    @Override
+    public Optional<Task> findById(long id) {
+        lock.readLock().lock();
+        try {
+            int row = liveRow(id);
+            return row < 0 ? Optional.empty() : Optional.of(read(row));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Task> findAll(LocalDateTime from, LocalDateTime to, long userId) {
+        long fromMillis = from != null ? toMillis(from) : Long.MIN_VALUE;
+        long toMillis = to != null ? toMillis(to) : Long.MAX_VALUE;
+        List<Task> result = new ArrayList<>();
+
+        lock.readLock().lock();
+        try {
+            // Только строки этого владельца, от новых к старым; удалённые остаются в списке
+            for (int row = lastRowByOwner.get(userId) - 1; row >= 0; row = prevByOwner.getInt(row * Integer.BYTES)) {
+                if (statuses.get(row) == DELETED) {
+                    continue;
+                }
+                long createdAt = createdAts.getLong(row * Long.BYTES);
+                if (createdAt >= fromMillis && createdAt <= toMillis) {
+                    result.add(read(row));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    @Override
+    public void update(Task task) {
+        if (task == null) {
+            throw new TaskBusinessException("Task cannot be null");
+        }
+        if (task.getTitle() == null || task.getTitle().isBlank() || task.getStatus() == null) {
+            throw new TaskBusinessException("Invalid task data");
+        }
+
+        lock.writeLock().lock();
+        try {
+            int row = liveRow(task.getId());
+            if (row < 0) {
+                throw new TaskNotFoundException(task.getId());
+            }
+            TaskStatus oldStatus = STATUSES[statuses.get(row)];
+            long owner = owners.getLong(row * Long.BYTES);
+            statuses.put(row, (byte) task.getStatus().ordinal());
+            writeTitle(row, task.getTitle());
+            if (owner != NO_OWNER && isActive(oldStatus) != isActive(task.getStatus())) {
+                activeByOwner.add(owner, isActive(task.getStatus()) ? 1 : -1);
+            }
+
+            task.setCreatedBy(owner == NO_OWNER ? null : owner);
+            task.setCreatedAt(toDateTime(createdAts.getLong(row * Long.BYTES)));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void deleteById(long id) {
+        lock.writeLock().lock();
+        try {
+            int row = liveRow(id);
+            if (row < 0) {
+                throw new TaskNotFoundException(id);
+            }
+            long owner = owners.getLong(row * Long.BYTES);
+            if (owner != NO_OWNER && isActive(STATUSES[statuses.get(row)])) {
+                activeByOwner.add(owner, -1);
+            }
+            statuses.put(row, DELETED);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public long countActiveTasksByUserId(long userId) {
+        lock.readLock().lock();
+        try {
+            return activeByOwner.get(userId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int liveRow(long id) {
+        if (id < 1 || id > size) {
+            return -1;
+        }
+        int row = (int) (id - 1);
+        return statuses.get(row) == DELETED ? -1 : row;
+    }
+
+    private Task read(int row) {
+        Task task = new Task();
+        task.setId(row + 1L);
+        long owner = owners.getLong(row * Long.BYTES);
+        task.setCreatedBy(owner == NO_OWNER ? null : owner);
+        task.setCreatedAt(toDateTime(createdAts.getLong(row * Long.BYTES)));
+        task.setStatus(STATUSES[statuses.get(row)]);
+
+        byte[] title = new byte[titleLengths.getInt(row * Integer.BYTES)];
+        titles.get(titleOffsets.getInt(row * Integer.BYTES), title);
+        task.setTitle(new String(title, StandardCharsets.UTF_8));
+        return task;
+    }
+
+    private void writeTitle(int row, String title) {
+        byte[] bytes = title.getBytes(StandardCharsets.UTF_8);
+        if (titles.capacity() - titlesSize < bytes.length) {
+            growTitles(bytes.length);
+        }
+        titles.put(titlesSize, bytes);
+        titleOffsets.putInt(row * Integer.BYTES, titlesSize);
+        titleLengths.putInt(row * Integer.BYTES, bytes.length);
+        titlesSize += bytes.length;
+    }
+
+    private void growRows() {
+        if (capacity == MAX_ROWS) {
+            throw new IllegalStateException("Task storage is full");
+        }
+        int newCapacity = (int) Math.min(MAX_ROWS, capacity * 2L);
+        owners = copy(owners, newCapacity * Long.BYTES);
+        createdAts = copy(createdAts, newCapacity * Long.BYTES);
+        statuses = copy(statuses, newCapacity);
+        titleOffsets = copy(titleOffsets, newCapacity * Integer.BYTES);
+        titleLengths = copy(titleLengths, newCapacity * Integer.BYTES);
+        prevByOwner = copy(prevByOwner, newCapacity * Integer.BYTES);
+        capacity = newCapacity;
+    }
+
+    private void growTitles(int needed) {
+        long required = (long) titlesSize + needed;
+        if (required > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Task title storage is full");
+        }
+        int newCapacity = (int) Math.min(Integer.MAX_VALUE, Math.max(required, titles.capacity() * 2L));
+        titles = copy(titles, newCapacity);
+    }
+
+    private ByteBuffer copy(ByteBuffer source, int newCapacity) {
+        ByteBuffer target = allocate(newCapacity);
+        target.put(0, source, 0, source.capacity());
+        return target;
+    }
+
+    private ByteBuffer allocate(int bytes) {
+        return offHeap ? ByteBuffer.allocateDirect(bytes) : ByteBuffer.allocate(bytes);
+    }
+
+    private static long toMillis(LocalDateTime dateTime) {
+        if (dateTime.isBefore(MIN_DATE_TIME)) return Long.MIN_VALUE;
+        if (dateTime.isAfter(MAX_DATE_TIME)) return Long.MAX_VALUE;
+        return dateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static LocalDateTime toDateTime(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC);
+    }
+
+    private static boolean isActive(TaskStatus status) {
+        return status == TaskStatus.OPEN || status == TaskStatus.IN_PROGRESS;
+    }
+
+    // Карта владелец → int: открытая адресация по long без упаковки ключей в Long
+    private static final class OwnerInts {
+
+        private static final long EMPTY = NO_OWNER;
+
+        private long[] keys = newKeys(64);
+        private int[] values = new int[64];
+        private int used;
+
+        private int get(long owner) {
+            int slot = find(keys, owner);
+            return keys[slot] == owner ? values[slot] : 0;
+        }
+
+        private void add(long owner, int delta) {
+            int slot = find(keys, owner);
+            if (keys[slot] != owner) {
+                if ((used + 1) * 2 > keys.length) {
+                    rehash();
+                    slot = find(keys, owner);
+                }
+                keys[slot] = owner;
+                used++;
+            }
+            values[slot] += delta;
+        }
+
+        private void put(long owner, int value) {
+            add(owner, value - get(owner));
+        }
+
+        private void rehash() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = newKeys(oldKeys.length * 2);
+            values = new int[oldKeys.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    int slot = find(keys, oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    values[slot] = oldValues[i];
+                }
+            }
+        }
+
+        // Линейное пробирование: слот с этим ключом или первый пустой
+        private static int find(long[] keys, long owner) {
+            int mask = keys.length - 1;
+            int slot = Long.hashCode(owner * 0x9E3779B97F4A7C15L) & mask;
+            while (keys[slot] != EMPTY && keys[slot] != owner) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private static long[] newKeys(int length) {
+            long[] keys = new long[length];
+            Arrays.fill(keys, EMPTY);
+            return keys;
+        }
+    }
+}
@@ -2,10 +2,13 @@ package ru.ssau.todo.repository;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Repository;
@@ -15,49 +18,69 @@ import ru.ssau.todo.entity.TaskStatus;
 import ru.ssau.todo.exception.TaskBusinessException;
 import ru.ssau.todo.exception.TaskNotFoundException;
 
+/**
+ * Потокобезопасное хранилище задач в памяти.
+ * Чтение по id идёт без блокировок, изменения одного пользователя сериализуются
+ * на его полосе блокировки — разные пользователи друг друга не ждут.
+ * Для каждого пользователя ведётся индекс по дате создания и счётчик активных задач,
+ * поэтому выборка за период и подсчёт не обходят задачи остальных пользователей.
+ */
 @Repository
 @Profile("in-memory")
 public class TaskInMemoryRepository implements TaskRepository {
 
-    private final Map<Long, Task> tasks = new HashMap<>();
-    private long count = 1;
+    private static final int LOCK_STRIPES = 64;
+
+    private final Map<Long, Task> tasks = new ConcurrentHashMap<>();
+    private final Map<Long, UserTasks> byUser = new ConcurrentHashMap<>();
+    private final AtomicLong ids = new AtomicLong(1);
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    public TaskInMemoryRepository() {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
 
     @Override
-    public synchronized Task create(Task task) {
+    public Task create(Task task) {
         if (task == null || task.getTitle() == null || task.getTitle().isBlank() || task.getStatus() == null) {
             throw new TaskBusinessException("Invalid task data");
         }
 
-        long newId = count++;
-        task.setId(newId);
+        task.setId(ids.getAndIncrement());
         task.setCreatedAt(LocalDateTime.now());
-        tasks.put(newId, task);
+
+        Long owner = task.getCreatedBy();
+        if (owner == null) {
+            tasks.put(task.getId(), task);
+            return task;
+        }
+        synchronized (lockFor(owner)) {
+            tasks.put(task.getId(), task);
+            userTasks(owner).add(task);
+        }
         return task;
     }
 
     @Override
     public Optional<Task> findById(long id) {
-        Task task = tasks.get(id);
-        return task == null ? Optional.empty() : Optional.of(task);
+        return Optional.ofNullable(tasks.get(id));
     }
 
     @Override
     public List<Task> findAll(LocalDateTime from, LocalDateTime to, long userId) {
+        UserTasks userTasks = byUser.get(userId);
+        if (userTasks == null) {
+            return new ArrayList<>();
+        }
         LocalDateTime startDate = (from != null) ? from : LocalDateTime.MIN;
         LocalDateTime endDate = (to != null) ? to : LocalDateTime.MAX;
-        List<Task> result = new ArrayList<>();
-
-        for (Task task : tasks.values()) {
-            if (task.getCreatedBy() == null || task.getCreatedBy() != userId) {
-                continue;
-            }
-            LocalDateTime createdAt = task.getCreatedAt();
-            if (createdAt != null && !createdAt.isBefore(startDate) && !createdAt.isAfter(endDate)) {
-                result.add(task);
-            }
+        if (startDate.isAfter(endDate)) {
+            return new ArrayList<>();
         }
-
-        return result;
+        // Как и в JDBC-репозитории — от новых к старым
+        return new ArrayList<>(userTasks.range(startDate, endDate).descendingMap().values());
     }
 
     @Override
@@ -65,33 +88,149 @@ public class TaskInMemoryRepository implements TaskRepository {
         if (task == null) {
             throw new TaskBusinessException("Task cannot be null");
         }
-        
+
         long id = task.getId();
         Task existingTask = tasks.get(id);
-        
         if (existingTask == null) {
             throw new TaskNotFoundException(id);
         }
 
-        task.setCreatedAt(existingTask.getCreatedAt());
-        task.setCreatedBy(existingTask.getCreatedBy());
-        
-        tasks.put(id, task);
+        Long owner = existingTask.getCreatedBy();
+        if (owner == null) {
+            task.setCreatedAt(existingTask.getCreatedAt());
+            task.setCreatedBy(null);
+            if (tasks.replace(id, existingTask, task)) {
+                return;
+            }
+            throw new TaskNotFoundException(id);
+        }
+
+        synchronized (lockFor(owner)) {
+            // Под блокировкой перечитываем: задачу могли удалить или изменить
+            existingTask = tasks.get(id);
+            if (existingTask == null) {
+                throw new TaskNotFoundException(id);
+            }
+            task.setCreatedAt(existingTask.getCreatedAt());
+            task.setCreatedBy(owner);
+
+            tasks.put(id, task);
+            userTasks(owner).replace(existingTask, task);
+        }
     }
 
     @Override
-public void deleteById(long id) {
-    if (!tasks.containsKey(id)) {
-        throw new TaskNotFoundException(id); 
+    public void deleteById(long id) {
+        Task existingTask = tasks.get(id);
+        if (existingTask == null) {
+            throw new TaskNotFoundException(id);
+        }
+
+        Long owner = existingTask.getCreatedBy();
+        if (owner == null) {
+            if (tasks.remove(id) == null) {
+                throw new TaskNotFoundException(id);
+            }
+            return;
+        }
+
+        synchronized (lockFor(owner)) {
+            Task removed = tasks.remove(id);
+            if (removed == null) {
+                throw new TaskNotFoundException(id);
+            }
+            userTasks(owner).remove(removed);
+        }
     }
-    tasks.remove(id);
-}
 
     @Override
-public long countActiveTasksByUserId(long userId) {
-    return tasks.values().stream()
-            .filter(task -> task.getCreatedBy() != null && task.getCreatedBy() == userId)
-            .filter(task -> task.getStatus() == TaskStatus.OPEN || task.getStatus() == TaskStatus.IN_PROGRESS)
-            .count();
-}
+    public long countActiveTasksByUserId(long userId) {
+        UserTasks userTasks = byUser.get(userId);
+        return userTasks == null ? 0 : userTasks.activeCount;
+    }
+
+    // Для восстановления из журнала (TaskWalRepository): id и дата создания уже назначены
+    void restore(Task task) {
+        ids.accumulateAndGet(task.getId() + 1, Math::max);
+        Long owner = task.getCreatedBy();
+        if (owner == null) {
+            tasks.put(task.getId(), task);
+            return;
+        }
+        synchronized (lockFor(owner)) {
+            tasks.put(task.getId(), task);
+            userTasks(owner).add(task);
+        }
+    }
+
+    // Все задачи разом; сохранённые экземпляры не меняются — update кладёт новый объект
+    List<Task> snapshot() {
+        return new ArrayList<>(tasks.values());
+    }
+
+    long nextId() {
+        return ids.get();
+    }
+
+    private Object lockFor(long userId) {
+        return locks[Long.hashCode(userId) & (LOCK_STRIPES - 1)];
+    }
+
+    private UserTasks userTasks(long userId) {
+        return byUser.computeIfAbsent(userId, id -> new UserTasks());
+    }
+
+    private static boolean isActive(TaskStatus status) {
+        return status == TaskStatus.OPEN || status == TaskStatus.IN_PROGRESS;
+    }
+
+    // Задачи одного пользователя. Изменяется только под блокировкой его полосы,
+    // читается без блокировок: счётчик volatile, индекс — ConcurrentSkipListMap
+    private static final class UserTasks {
+
+        private final ConcurrentSkipListMap<TaskKey, Task> byCreatedAt = new ConcurrentSkipListMap<>();
+        private volatile long activeCount;
+
+        private void add(Task task) {
+            byCreatedAt.put(TaskKey.of(task), task);
+            if (isActive(task.getStatus())) {
+                activeCount++;
+            }
+        }
+
+        private void remove(Task task) {
+            byCreatedAt.remove(TaskKey.of(task));
+            if (isActive(task.getStatus())) {
+                activeCount--;
+            }
+        }
+
+        private void replace(Task oldTask, Task newTask) {
+            // createdAt и id не меняются, ключ в индексе тот же
+            byCreatedAt.put(TaskKey.of(newTask), newTask);
+            if (isActive(oldTask.getStatus()) != isActive(newTask.getStatus())) {
+                activeCount += isActive(newTask.getStatus()) ? 1 : -1;
+            }
+        }
+
+        private NavigableMap<TaskKey, Task> range(LocalDateTime from, LocalDateTime to) {
+            return byCreatedAt.subMap(
+                    new TaskKey(from, Long.MIN_VALUE), true,
+                    new TaskKey(to, Long.MAX_VALUE), true);
+        }
+    }
+
+    // Несколько задач могут быть созданы в одно и то же время — id делает ключ уникальным
+    private record TaskKey(LocalDateTime createdAt, long id) implements Comparable<TaskKey> {
+
+        private static TaskKey of(Task task) {
+            return new TaskKey(task.getCreatedAt(), task.getId());
+        }
+
+        @Override
+        public int compareTo(TaskKey other) {
+            int byTime = createdAt.compareTo(other.createdAt);
+            return byTime != 0 ? byTime : Long.compare(id, other.id);
+        }
+    }
 }
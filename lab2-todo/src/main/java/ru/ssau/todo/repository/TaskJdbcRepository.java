@@ -19,6 +19,16 @@ import ru.ssau.todo.exception.TaskNotFoundException;
 @Profile("jdbc")
 public class TaskJdbcRepository implements TaskRepository {
 
+    private static final String FIND_ALL_SQL =
+            "SELECT * FROM task WHERE created_by = ? ORDER BY created_at DESC";
+    private static final String FIND_ALL_FROM_SQL =
+            "SELECT * FROM task WHERE created_by = ? AND created_at >= ? ORDER BY created_at DESC";
+    private static final String FIND_ALL_TO_SQL =
+            "SELECT * FROM task WHERE created_by = ? AND created_at <= ? ORDER BY created_at DESC";
+    private static final String FIND_ALL_BETWEEN_SQL =
+            "SELECT * FROM task WHERE created_by = ? AND created_at >= ? AND created_at <= ? " +
+            "ORDER BY created_at DESC";
+
     private final JdbcTemplate jdbcTemplate;
 
     public TaskJdbcRepository(JdbcTemplate jdbcTemplate) {
@@ -67,12 +77,19 @@ public class TaskJdbcRepository implements TaskRepository {
 
     @Override
     public List<Task> findAll(LocalDateTime from, LocalDateTime to, long userId) {
-        String sql = "SELECT * FROM task WHERE created_by = ? " +
-                "AND (created_at >= COALESCE(?, created_at)) " +
-                "AND (created_at <= COALESCE(?, created_at)) " +
-                "ORDER BY created_at DESC";
-
-        return jdbcTemplate.query(sql, taskRowMapper, userId, from, to);
+        // Отдельный текст запроса на каждую комбинацию границ: с COALESCE(?, created_at)
+        // планировщик не может использовать диапазон по индексу (created_by, created_at)
+        if (from != null && to != null) {
+            return jdbcTemplate.query(FIND_ALL_BETWEEN_SQL, taskRowMapper,
+                    userId, Timestamp.valueOf(from), Timestamp.valueOf(to));
+        }
+        if (from != null) {
+            return jdbcTemplate.query(FIND_ALL_FROM_SQL, taskRowMapper, userId, Timestamp.valueOf(from));
+        }
+        if (to != null) {
+            return jdbcTemplate.query(FIND_ALL_TO_SQL, taskRowMapper, userId, Timestamp.valueOf(to));
+        }
+        return jdbcTemplate.query(FIND_ALL_SQL, taskRowMapper, userId);
     }
 
     @Override
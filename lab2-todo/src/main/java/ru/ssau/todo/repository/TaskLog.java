@@ -0,0 +1,384 @@
+package ru.ssau.todo.repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Журнал изменений задач в отображённых в память файлах-сегментах.
+ *
+ * <p>Запись: {@code int length, int crc32c, byte type, payload}, где length — размер
+ * type + payload. Сегмент создаётся сразу нужного размера и заполнен нулями,
+ * поэтому нулевая длина означает конец данных. Запись с неверной CRC в конце
+ * последнего сегмента — оборванная при сбое, на ней чтение останавливается.
+ * В более ранних сегментах данные должны дойти до конца: иначе записи после
+ * повреждения потерялись бы, и следующие сегменты применялись бы к неполному состоянию.
+ *
+ * <p>Снимок {@code snapshot-N.dat} содержит состояние на начало сегмента N
+ * в том же формате записей; сегменты до N после снимка удаляются.
+ *
+ * <p>Запись в сегмент — это просто копирование в память; на диск данные сбрасывает
+ * {@link #awaitDurable(long)}. Один поток делает {@code force()} за всех, кто ждёт
+ * в этот момент, поэтому одна синхронизация с диском покрывает целую группу записей.
+ */
+final class TaskLog implements AutoCloseable {
+
+    static final int HEADER_SIZE = Integer.BYTES * 2;
+
+    private static final Pattern SEGMENT_NAME  = Pattern.compile("segment-(\\d{8})\\.log");
+    private static final Pattern SNAPSHOT_NAME = Pattern.compile("snapshot-(\\d{8})\\.dat");
+
+    @FunctionalInterface
+    interface RecordHandler {
+        void apply(byte type, ByteBuffer payload);
+    }
+
+    private final Path dir;
+    private final int segmentSize;
+
+    // Текущий сегмент для записи; поля ниже меняются только под монитором this
+    private Segment current;
+    private int snapshotBase;
+    // Байт записано с момента открытия журнала — «номер» записи для awaitDurable
+    private long written;
+
+    private final Object flushMonitor = new Object();
+    private boolean flushing;
+    private long durable;
+
+    TaskLog(Path dir, int segmentSize) {
+        if (segmentSize < 1024) {
+            throw new IllegalArgumentException("Log segment size is too small: " + segmentSize);
+        }
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Восстанавливает состояние: снимок, затем сегменты после него по порядку.
+     * После вызова журнал готов к записи в конец последнего сегмента.
+     */
+    synchronized void replay(RecordHandler handler) {
+        try {
+            Files.createDirectories(dir);
+            TreeMap<Integer, Path> snapshots = list(SNAPSHOT_NAME);
+            TreeMap<Integer, Path> segments = list(SEGMENT_NAME);
+
+            if (!snapshots.isEmpty()) {
+                snapshotBase = snapshots.lastKey();
+                readSnapshot(snapshots.lastEntry().getValue(), handler);
+                // Старые снимки и покрытые снимком сегменты остаются от прерванной компактизации
+                for (Path old : snapshots.headMap(snapshotBase).values()) Files.deleteIfExists(old);
+                for (Path old : segments.headMap(snapshotBase).values()) Files.deleteIfExists(old);
+            }
+
+            int last = segments.isEmpty() ? snapshotBase : Math.max(snapshotBase, segments.lastKey());
+            for (int index = snapshotBase; index <= last; index++) {
+                if (!segments.containsKey(index) && index < last) {
+                    throw new IllegalStateException("Task log segment " + index + " is missing");
+                }
+                Segment segment = Segment.open(segmentPath(index), index, segmentSize);
+                segment.position = readRecords(segment.buffer, segment.buffer.capacity(), handler);
+                if (index < last) {
+                    boolean complete = isEndOfData(segment.buffer, segment.position, segment.buffer.capacity());
+                    segment.close();
+                    if (!complete) {
+                        throw new IllegalStateException("Task log segment " + segmentPath(index)
+                                + " is corrupted at offset " + segment.position);
+                    }
+                } else {
+                    // Хвост после последней целой записи мог остаться от оборванной записи
+                    segment.zeroTail();
+                    segment.forced = segment.position;
+                    current = segment;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to replay task log in " + dir, e);
+        }
+    }
+
+    /**
+     * Дописывает запись и возвращает номер, который нужно передать в {@link #awaitDurable(long)}.
+     * Вызывающий сам отвечает за порядок записей относительно изменения состояния в памяти.
+     */
+    synchronized long append(byte type, byte[] payload) {
+        int length = 1 + payload.length;
+        int recordSize = HEADER_SIZE + length;
+        if (recordSize > segmentSize) {
+            throw new IllegalArgumentException("Task log record of " + recordSize + " bytes exceeds segment size");
+        }
+        if (current.position + recordSize > segmentSize) {
+            roll();
+        }
+
+        CRC32C crc = new CRC32C();
+        crc.update(type);
+        crc.update(payload);
+
+        MappedByteBuffer buffer = current.buffer;
+        int position = current.position;
+        // Длину пишем последней: до этого момента запись для чтения не существует
+        buffer.putInt(position + Integer.BYTES, (int) crc.getValue());
+        buffer.put(position + HEADER_SIZE, type);
+        buffer.put(position + HEADER_SIZE + 1, payload);
+        buffer.putInt(position, length);
+
+        current.position += recordSize;
+        written += recordSize;
+        return written;
+    }
+
+    /**
+     * Блокирует поток, пока запись с данным номером не окажется на диске.
+     * Если синхронизация уже идёт — ждёт её и, при необходимости, делает следующую сам.
+     */
+    void awaitDurable(long lsn) {
+        while (true) {
+            synchronized (flushMonitor) {
+                if (durable >= lsn) {
+                    return;
+                }
+                if (flushing) {
+                    waitForFlush();
+                    continue;
+                }
+                flushing = true;
+            }
+
+            long target;
+            Segment segment;
+            int from;
+            int to;
+            synchronized (this) {
+                target = written;
+                segment = current;
+                from = segment.forced;
+                to = segment.position;
+            }
+            boolean flushed = false;
+            try {
+                if (to > from) {
+                    segment.buffer.force(from, to - from);
+                }
+                synchronized (this) {
+                    segment.forced = Math.max(segment.forced, to);
+                }
+                flushed = true;
+            } finally {
+                synchronized (flushMonitor) {
+                    flushing = false;
+                    if (flushed) {
+                        durable = Math.max(durable, target);
+                    }
+                    flushMonitor.notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Закрывает текущий сегмент (сбросив его на диск) и начинает новый.
+     * Возвращает номер нового сегмента — всё, что до него, можно покрыть снимком.
+     */
+    synchronized int roll() {
+        try {
+            current.buffer.force(current.forced, current.position - current.forced);
+            current.forced = current.position;
+            current.close();
+            current = Segment.open(segmentPath(current.index + 1), current.index + 1, segmentSize);
+            return current.index;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to roll task log segment", e);
+        }
+    }
+
+    synchronized int segmentsSinceSnapshot() {
+        return current.index - snapshotBase;
+    }
+
+    /**
+     * Записывает снимок состояния на начало сегмента {@code base} и удаляет сегменты до него.
+     * Файл пишется во временный, синхронизируется и атомарно переименовывается.
+     */
+    void writeSnapshot(int base, List<byte[]> creates, byte type) {
+        Path target = snapshotPath(base);
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            for (byte[] payload : creates) {
+                int recordSize = HEADER_SIZE + 1 + payload.length;
+                if (buffer.remaining() < recordSize) {
+                    writeFully(channel, buffer);
+                    if (buffer.capacity() < recordSize) {
+                        buffer = ByteBuffer.allocate(recordSize);
+                    }
+                }
+                CRC32C crc = new CRC32C();
+                crc.update(type);
+                crc.update(payload);
+                buffer.putInt(1 + payload.length).putInt((int) crc.getValue()).put(type).put(payload);
+            }
+            writeFully(channel, buffer);
+            channel.force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write task log snapshot", e);
+        }
+
+        try {
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            int previousBase;
+            synchronized (this) {
+                previousBase = snapshotBase;
+                snapshotBase = base;
+            }
+            Files.deleteIfExists(snapshotPath(previousBase));
+            for (Path segment : list(SEGMENT_NAME).headMap(base).values()) {
+                Files.deleteIfExists(segment);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to install task log snapshot", e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (current != null) {
+            current.buffer.force();
+            current.close();
+            current = null;
+        }
+    }
+
+    private void waitForFlush() {
+        try {
+            flushMonitor.wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for task log flush", e);
+        }
+    }
+
+    private void readSnapshot(Path path, RecordHandler handler) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int end = readRecords(buffer, (int) size, handler);
+            if (end != size) {
+                throw new IllegalStateException("Task log snapshot " + path + " is corrupted at offset " + end);
+            }
+        }
+    }
+
+    // Читает записи до первой пустой или повреждённой; возвращает смещение после последней целой
+    private static int readRecords(ByteBuffer buffer, int limit, RecordHandler handler) {
+        int position = 0;
+        while (position + HEADER_SIZE < limit) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || position + HEADER_SIZE + length > limit) {
+                break;
+            }
+            int storedCrc = buffer.getInt(position + Integer.BYTES);
+            ByteBuffer record = buffer.slice(position + HEADER_SIZE, length);
+            CRC32C crc = new CRC32C();
+            crc.update(record.duplicate());
+            if ((int) crc.getValue() != storedCrc) {
+                break;
+            }
+            handler.apply(record.get(0), record.slice(1, length - 1));
+            position += HEADER_SIZE + length;
+        }
+        return position;
+    }
+
+    // Дальше нет места под заголовок или стоит нулевая длина — конец данных, а не повреждение
+    private static boolean isEndOfData(ByteBuffer buffer, int position, int limit) {
+        return position + HEADER_SIZE >= limit || buffer.getInt(position) == 0;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private TreeMap<Integer, Path> list(Pattern pattern) throws IOException {
+        TreeMap<Integer, Path> result = new TreeMap<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Matcher matcher = pattern.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    result.put(Integer.parseInt(matcher.group(1)), file);
+                }
+            }
+        }
+        return result;
+    }
+
+    private Path segmentPath(int index) {
+        return dir.resolve(String.format("segment-%08d.log", index));
+    }
+
+    private Path snapshotPath(int base) {
+        return dir.resolve(String.format("snapshot-%08d.dat", base));
+    }
+
+    private static final class Segment {
+
+        private final int index;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private int position;
+        private int forced;
+
+        private Segment(int index, FileChannel channel, MappedByteBuffer buffer) {
+            this.index = index;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        private static Segment open(Path path, int index, int size) throws IOException {
+            FileChannel channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            // Сегмент, созданный с другим размером, читаем целиком, но не обрезаем
+            long mapSize = Math.max(size, channel.size());
+            return new Segment(index, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, mapSize));
+        }
+
+        private void zeroTail() {
+            boolean dirty = false;
+            for (int i = position; i < buffer.capacity(); i++) {
+                if (buffer.get(i) != 0) {
+                    buffer.put(i, (byte) 0);
+                    dirty = true;
+                }
+            }
+            if (dirty) {
+                buffer.force(position, buffer.capacity() - position);
+            }
+        }
+
+        private void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to close task log segment " + index, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package ru.ssau.todo.repository;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import jakarta.annotation.PreDestroy;
+import ru.ssau.todo.entity.Task;
+import ru.ssau.todo.entity.TaskStatus;
+import ru.ssau.todo.exception.TaskBusinessException;
+import ru.ssau.todo.exception.TaskNotFoundException;
+
+/**
+ * Хранилище в памяти с журналом на диске: каждое изменение сначала пишется в {@link TaskLog},
+ * затем применяется к {@link TaskInMemoryRepository}. При старте состояние восстанавливается
+ * повтором журнала. Метод возвращает управление только после того, как запись
+ * сброшена на диск, — но сброс общий для всех, кто пишет одновременно.
+ *
+ * <p>Когда после последнего снимка накапливается {@code tasks.wal.compact-after-segments}
+ * сегментов, в фоне пишется новый снимок и старые сегменты удаляются.
+ */
+@Repository
+@Profile("wal")
+public class TaskWalRepository implements TaskRepository {
+
+    private static final Logger log = LoggerFactory.getLogger(TaskWalRepository.class);
+
+    private static final byte CREATE = 1;
+    private static final byte UPDATE = 2;
+    private static final byte DELETE = 3;
+
+    private static final long NO_OWNER = Long.MIN_VALUE;
+    private static final TaskStatus[] STATUSES = TaskStatus.values();
+
+    private final TaskInMemoryRepository state = new TaskInMemoryRepository();
+    private final TaskLog taskLog;
+    private final int compactAfterSegments;
+
+    // Порядок записей в журнале совпадает с порядком применения к состоянию
+    private final Object writeLock = new Object();
+    private long nextId;
+
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "task-log-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean compacting = new AtomicBoolean();
+
+    public TaskWalRepository(@Value("${tasks.wal.dir:data/wal}") Path dir,
+                             @Value("${tasks.wal.segment-size:67108864}") int segmentSize,
+                             @Value("${tasks.wal.compact-after-segments:4}") int compactAfterSegments) {
+        this.taskLog = new TaskLog(dir, segmentSize);
+        this.compactAfterSegments = compactAfterSegments;
+        taskLog.replay(this::applyRecord);
+        this.nextId = state.nextId();
+        log.info("Task log replayed from {}: next task id {}", dir, nextId);
+    }
+
+    @Override
+    public Task create(Task task) {
+        if (task == null || task.getTitle() == null || task.getTitle().isBlank() || task.getStatus() == null) {
+            throw new TaskBusinessException("Invalid task data");
+        }
+        long lsn;
+        synchronized (writeLock) {
+            task.setId(nextId++);
+            task.setCreatedAt(LocalDateTime.now());
+            lsn = taskLog.append(CREATE, encodeCreate(task));
+            state.restore(task);
+        }
+        afterWrite(lsn);
+        return task;
+    }
+
+    @Override
+    public Optional<Task> findById(long id) {
+        return state.findById(id);
+    }
+
+    @Override
+    public List<Task> findAll(LocalDateTime from, LocalDateTime to, long userId) {
+        return state.findAll(from, to, userId);
+    }
+
+    @Override
+    public void update(Task task) {
+        if (task == null) {
+            throw new TaskBusinessException("Task cannot be null");
+        }
+        if (task.getTitle() == null || task.getTitle().isBlank() || task.getStatus() == null) {
+            throw new TaskBusinessException("Invalid task data");
+        }
+        long lsn;
+        synchronized (writeLock) {
+            if (state.findById(task.getId()).isEmpty()) {
+                throw new TaskNotFoundException(task.getId());
+            }
+            lsn = taskLog.append(UPDATE, encodeUpdate(task));
+            state.update(task);
+        }
+        afterWrite(lsn);
+    }
+
+    @Override
+    public void deleteById(long id) {
+        long lsn;
+        synchronized (writeLock) {
+            if (state.findById(id).isEmpty()) {
+                throw new TaskNotFoundException(id);
+            }
+            lsn = taskLog.append(DELETE, ByteBuffer.allocate(Long.BYTES).putLong(id).array());
+            state.deleteById(id);
+        }
+        afterWrite(lsn);
+    }
+
+    @Override
+    public long countActiveTasksByUserId(long userId) {
+        return state.countActiveTasksByUserId(userId);
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        compactor.shutdown();
+        compactor.awaitTermination(30, TimeUnit.SECONDS);
+        taskLog.close();
+    }
+
+    // Ждём сброса на диск уже без блокировки записи — пока ждём, другие потоки дописывают в ту же группу
+    private void afterWrite(long lsn) {
+        taskLog.awaitDurable(lsn);
+        if (taskLog.segmentsSinceSnapshot() >= compactAfterSegments && compacting.compareAndSet(false, true)) {
+            compactor.execute(this::compact);
+        }
+    }
+
+    private void compact() {
+        try {
+            int base;
+            List<Task> tasks;
+            synchronized (writeLock) {
+                base = taskLog.roll();
+                tasks = state.snapshot();
+            }
+            List<byte[]> records = new ArrayList<>(tasks.size());
+            for (Task task : tasks) {
+                records.add(encodeCreate(task));
+            }
+            taskLog.writeSnapshot(base, records, CREATE);
+            log.info("Task log compacted: snapshot of {} tasks at segment {}", tasks.size(), base);
+        } catch (RuntimeException e) {
+            log.error("Task log compaction failed", e);
+        } finally {
+            compacting.set(false);
+        }
+    }
+
+    private void applyRecord(byte type, ByteBuffer payload) {
+        switch (type) {
+            case CREATE -> state.restore(decodeCreate(payload));
+            case UPDATE -> {
+                Task task = new Task();
+                task.setId(payload.getLong());
+                task.setStatus(STATUSES[payload.get()]);
+                task.setTitle(readString(payload));
+                state.update(task);
+            }
+            case DELETE -> state.deleteById(payload.getLong());
+            default -> throw new IllegalStateException("Unknown task log record type " + type);
+        }
+    }
+
+    private static byte[] encodeCreate(Task task) {
+        byte[] title = task.getTitle().getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(Long.BYTES * 3 + Integer.BYTES * 2 + 1 + title.length)
+                .putLong(task.getId())
+                .putLong(task.getCreatedBy() == null ? NO_OWNER : task.getCreatedBy())
+                .putLong(task.getCreatedAt().toEpochSecond(ZoneOffset.UTC))
+                .putInt(task.getCreatedAt().getNano())
+                .put((byte) task.getStatus().ordinal())
+                .putInt(title.length)
+                .put(title)
+                .array();
+    }
+
+    private static Task decodeCreate(ByteBuffer payload) {
+        Task task = new Task();
+        task.setId(payload.getLong());
+        long owner = payload.getLong();
+        task.setCreatedBy(owner == NO_OWNER ? null : owner);
+        long seconds = payload.getLong();
+        task.setCreatedAt(LocalDateTime.ofEpochSecond(seconds, payload.getInt(), ZoneOffset.UTC));
+        task.setStatus(STATUSES[payload.get()]);
+        task.setTitle(readString(payload));
+        return task;
+    }
+
+    private static byte[] encodeUpdate(Task task) {
+        byte[] title = task.getTitle().getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(Long.BYTES + 1 + Integer.BYTES + title.length)
+                .putLong(task.getId())
+                .put((byte) task.getStatus().ordinal())
+                .putInt(title.length)
+                .put(title)
+                .array();
+    }
+
+    private static String readString(ByteBuffer payload) {
+        byte[] bytes = new byte[payload.getInt()];
+        payload.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
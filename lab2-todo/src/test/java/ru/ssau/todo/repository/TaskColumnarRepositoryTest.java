@@ -0,0 +1,69 @@
+package ru.ssau.todo.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import ru.ssau.todo.entity.Task;
+import ru.ssau.todo.entity.TaskStatus;
+import ru.ssau.todo.exception.TaskNotFoundException;
+
+class TaskColumnarRepositoryTest {
+
+	// Маленькая начальная ёмкость — чтобы столбцы и область заголовков несколько раз выросли
+	@ParameterizedTest
+	@ValueSource(booleans = {false, true})
+	void storesAndReadsBackTasks(boolean offHeap) {
+		TaskColumnarRepository repository = new TaskColumnarRepository(offHeap, 16);
+
+		for (int i = 0; i < 1000; i++) {
+			repository.create(task(i % 3 + 1L, "задача " + i, i % 2 == 0 ? TaskStatus.OPEN : TaskStatus.DONE));
+		}
+		Task saved = repository.findById(500).orElseThrow();
+		assertThat(saved.getTitle()).isEqualTo("задача 499");
+		assertThat(saved.getCreatedBy()).isEqualTo(499 % 3 + 1L);
+		assertThat(saved.getStatus()).isEqualTo(TaskStatus.DONE);
+
+		List<Task> userTasks = repository.findAll(null, null, 1L);
+		assertThat(userTasks).hasSize(334);
+		assertThat(userTasks).extracting(Task::getId).isSortedAccordingTo((a, b) -> Long.compare(b, a));
+		assertThat(repository.findAll(null, null, 2L)).hasSize(333)
+				.allSatisfy(t -> assertThat(t.getCreatedBy()).isEqualTo(2L));
+		assertThat(repository.findAll(null, null, 42L)).isEmpty();
+		assertThat(repository.countActiveTasksByUserId(1L)).isEqualTo(167);
+	}
+
+	@ParameterizedTest
+	@ValueSource(booleans = {false, true})
+	void updateAndDeleteAdjustActiveCount(boolean offHeap) {
+		TaskColumnarRepository repository = new TaskColumnarRepository(offHeap, 16);
+		Task created = repository.create(task(7L, "черновик", TaskStatus.OPEN));
+
+		Task update = task(null, "готово", TaskStatus.DONE);
+		update.setId(created.getId());
+		repository.update(update);
+
+		assertThat(update.getCreatedBy()).isEqualTo(7L);
+		assertThat(repository.findById(created.getId()).orElseThrow().getTitle()).isEqualTo("готово");
+		assertThat(repository.countActiveTasksByUserId(7L)).isZero();
+		assertThat(repository.findAll(created.getCreatedAt(), created.getCreatedAt(), 7L)).hasSize(1);
+
+		repository.deleteById(created.getId());
+		assertThat(repository.findById(created.getId())).isEmpty();
+		assertThat(repository.findAll(null, null, 7L)).isEmpty();
+		assertThatThrownBy(() -> repository.deleteById(created.getId()))
+				.isInstanceOf(TaskNotFoundException.class);
+	}
+
+	private static Task task(Long userId, String title, TaskStatus status) {
+		Task task = new Task();
+		task.setTitle(title);
+		task.setStatus(status);
+		task.setCreatedBy(userId);
+		return task;
+	}
+}
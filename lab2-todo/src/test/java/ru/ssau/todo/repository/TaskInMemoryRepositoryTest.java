@@ -0,0 +1,129 @@
+package ru.ssau.todo.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import ru.ssau.todo.entity.Task;
+import ru.ssau.todo.entity.TaskStatus;
+import ru.ssau.todo.exception.TaskNotFoundException;
+
+class TaskInMemoryRepositoryTest {
+
+	private static final int USERS = 8;
+	private static final int THREADS = 8;
+	private static final int OPS_PER_THREAD = 20_000;
+	private static final TaskStatus[] STATUSES = TaskStatus.values();
+
+	private final TaskInMemoryRepository repository = new TaskInMemoryRepository();
+
+	@Test
+	void findAllReturnsRangeNewestFirst() throws InterruptedException {
+		Task first = repository.create(task(1L, TaskStatus.OPEN));
+		Thread.sleep(2);
+		Task second = repository.create(task(1L, TaskStatus.DONE));
+		repository.create(task(2L, TaskStatus.OPEN));
+
+		assertThat(repository.findAll(null, null, 1L)).extracting(Task::getId)
+				.containsExactly(second.getId(), first.getId());
+		assertThat(repository.findAll(second.getCreatedAt(), null, 1L)).extracting(Task::getId)
+				.containsExactly(second.getId());
+		assertThat(repository.findAll(null, first.getCreatedAt(), 1L)).extracting(Task::getId)
+				.containsExactly(first.getId());
+		assertThat(repository.countActiveTasksByUserId(1L)).isEqualTo(1);
+	}
+
+	// Параллельные create/update/delete по нескольким пользователям: после завершения
+	// счётчики и индекс каждого пользователя должны совпадать с пересчётом по самим задачам
+	@Test
+	void countersStayConsistentUnderConcurrentWrites() throws Exception {
+		AtomicLong created = new AtomicLong();
+		AtomicLong deleted = new AtomicLong();
+		AtomicLong maxId = new AtomicLong();
+		CountDownLatch start = new CountDownLatch(1);
+
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS + 1);
+		List<Future<?>> writers = new ArrayList<>();
+		for (int t = 0; t < THREADS; t++) {
+			writers.add(executor.submit(() -> {
+				start.await();
+				ThreadLocalRandom random = ThreadLocalRandom.current();
+				for (int i = 0; i < OPS_PER_THREAD; i++) {
+					long userId = random.nextInt(USERS) + 1;
+					int op = random.nextInt(4);
+					if (op < 2 || maxId.get() == 0) {
+						Task task = repository.create(task(userId, STATUSES[random.nextInt(STATUSES.length)]));
+						maxId.accumulateAndGet(task.getId(), Math::max);
+						created.incrementAndGet();
+						continue;
+					}
+					long id = random.nextLong(maxId.get()) + 1;
+					try {
+						if (op == 2) {
+							Task update = task(null, STATUSES[random.nextInt(STATUSES.length)]);
+							update.setId(id);
+							repository.update(update);
+						} else {
+							repository.deleteById(id);
+							deleted.incrementAndGet();
+						}
+					} catch (TaskNotFoundException e) {
+						// Задачу уже удалил другой поток
+					}
+				}
+				return null;
+			}));
+		}
+		// Читатель всё время видит неотрицательный счётчик и не ловит исключений на индексе
+		Future<?> reader = executor.submit(() -> {
+			start.await();
+			while (!writers.stream().allMatch(Future::isDone)) {
+				long userId = ThreadLocalRandom.current().nextInt(USERS) + 1;
+				assertThat(repository.countActiveTasksByUserId(userId)).isNotNegative();
+				repository.findAll(LocalDateTime.now().minusSeconds(1), null, userId);
+			}
+			return null;
+		});
+
+		start.countDown();
+		for (Future<?> writer : writers) {
+			writer.get();
+		}
+		reader.get();
+		executor.shutdown();
+		assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+		long total = 0;
+		for (long userId = 1; userId <= USERS; userId++) {
+			List<Task> userTasks = repository.findAll(null, null, userId);
+			long active = userTasks.stream()
+					.filter(task -> task.getStatus() == TaskStatus.OPEN || task.getStatus() == TaskStatus.IN_PROGRESS)
+					.count();
+			assertThat(repository.countActiveTasksByUserId(userId)).isEqualTo(active);
+			for (Task task : userTasks) {
+				assertThat(repository.findById(task.getId())).containsSame(task);
+			}
+			total += userTasks.size();
+		}
+		assertThat(total).isEqualTo(created.get() - deleted.get());
+	}
+
+	private static Task task(Long userId, TaskStatus status) {
+		Task task = new Task();
+		task.setTitle("task");
+		task.setStatus(status);
+		task.setCreatedBy(userId);
+		return task;
+	}
+}
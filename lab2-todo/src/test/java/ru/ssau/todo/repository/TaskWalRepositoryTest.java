@@ -0,0 +1,150 @@
+package ru.ssau.todo.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import ru.ssau.todo.entity.Task;
+import ru.ssau.todo.entity.TaskStatus;
+
+class TaskWalRepositoryTest {
+
+	private static final int SEGMENT_SIZE = 4096;
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void stateSurvivesRestart() throws Exception {
+		TaskWalRepository repository = new TaskWalRepository(dir, SEGMENT_SIZE, 1000);
+		Task kept = repository.create(task(1L, "остаётся", TaskStatus.OPEN));
+		Task updated = repository.create(task(1L, "черновик", TaskStatus.OPEN));
+		Task deleted = repository.create(task(2L, "удаляется", TaskStatus.OPEN));
+		Task update = task(null, "готово", TaskStatus.DONE);
+		update.setId(updated.getId());
+		repository.update(update);
+		repository.deleteById(deleted.getId());
+		repository.close();
+
+		TaskWalRepository reopened = new TaskWalRepository(dir, SEGMENT_SIZE, 1000);
+		assertThat(reopened.findById(kept.getId()).orElseThrow().getCreatedAt()).isEqualTo(kept.getCreatedAt());
+		assertThat(reopened.findById(updated.getId()).orElseThrow().getTitle()).isEqualTo("готово");
+		assertThat(reopened.findById(deleted.getId())).isEmpty();
+		assertThat(reopened.countActiveTasksByUserId(1L)).isEqualTo(1);
+		assertThat(reopened.create(task(1L, "новая", TaskStatus.DONE)).getId()).isEqualTo(deleted.getId() + 1);
+		reopened.close();
+	}
+
+	// Параллельные записи в маленькие сегменты: несколько смен сегмента и компактизаций по ходу
+	@Test
+	void concurrentWritesAreReplayedAfterCompaction() throws Exception {
+		TaskWalRepository repository = new TaskWalRepository(dir, SEGMENT_SIZE, 2);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		List<Future<?>> futures = new ArrayList<>();
+		for (int t = 0; t < 4; t++) {
+			long userId = t + 1;
+			futures.add(executor.submit(() -> {
+				for (int i = 0; i < 250; i++) {
+					repository.create(task(userId, "задача " + i, i % 2 == 0 ? TaskStatus.OPEN : TaskStatus.DONE));
+				}
+				return null;
+			}));
+		}
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		executor.shutdown();
+		repository.close();
+
+		try (Stream<Path> files = Files.list(dir)) {
+			assertThat(files.map(p -> p.getFileName().toString())).anyMatch(name -> name.startsWith("snapshot-"));
+		}
+
+		TaskWalRepository reopened = new TaskWalRepository(dir, SEGMENT_SIZE, 2);
+		for (long userId = 1; userId <= 4; userId++) {
+			assertThat(reopened.findAll(null, null, userId)).hasSize(250);
+			assertThat(reopened.countActiveTasksByUserId(userId)).isEqualTo(125);
+		}
+		reopened.close();
+	}
+
+	// Оборванная последняя запись (сбой посреди записи) отбрасывается при повторе журнала
+	@Test
+	void tornTailIsIgnored() throws Exception {
+		TaskWalRepository repository = new TaskWalRepository(dir, SEGMENT_SIZE, 1000);
+		Task first = repository.create(task(1L, "целая", TaskStatus.OPEN));
+		Task second = repository.create(task(1L, "оборванная", TaskStatus.OPEN));
+		repository.close();
+
+		Path segment = dir.resolve("segment-00000000.log");
+		try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+			// Портим последний байт второй записи — CRC перестаёт сходиться
+			int firstLength = recordLength(file, 0);
+			int secondLength = recordLength(file, firstLength);
+			long lastByte = firstLength + secondLength - 1;
+			file.seek(lastByte);
+			int value = file.read();
+			file.seek(lastByte);
+			file.write(value ^ 0xFF);
+		}
+
+		TaskWalRepository reopened = new TaskWalRepository(dir, SEGMENT_SIZE, 1000);
+		assertThat(reopened.findById(first.getId())).isPresent();
+		assertThat(reopened.findById(second.getId())).isEmpty();
+		assertThat(reopened.create(task(1L, "после сбоя", TaskStatus.OPEN)).getId()).isEqualTo(second.getId());
+		reopened.close();
+
+		TaskWalRepository again = new TaskWalRepository(dir, SEGMENT_SIZE, 1000);
+		assertThat(again.findById(second.getId()).orElseThrow().getTitle()).isEqualTo("после сбоя");
+		again.close();
+	}
+
+	// Повреждение не в последнем сегменте — не оборванная запись: старт должен упасть, а не терять данные
+	@Test
+	void corruptionInEarlierSegmentFailsReplay() throws Exception {
+		TaskWalRepository repository = new TaskWalRepository(dir, SEGMENT_SIZE, 1000);
+		for (int i = 0; i < 100; i++) {
+			repository.create(task(1L, "задача " + i, TaskStatus.OPEN));
+		}
+		repository.close();
+		assertThat(dir.resolve("segment-00000001.log")).exists();
+
+		try (RandomAccessFile file = new RandomAccessFile(dir.resolve("segment-00000000.log").toFile(), "rw")) {
+			int firstLength = recordLength(file, 0);
+			long lastByte = firstLength + recordLength(file, firstLength) - 1;
+			file.seek(lastByte);
+			int value = file.read();
+			file.seek(lastByte);
+			file.write(value ^ 0xFF);
+		}
+
+		assertThatThrownBy(() -> new TaskWalRepository(dir, SEGMENT_SIZE, 1000))
+				.isInstanceOf(IllegalStateException.class)
+				.hasMessageContaining("segment-00000000.log");
+	}
+
+	private static int recordLength(RandomAccessFile file, long offset) throws Exception {
+		file.seek(offset);
+		return TaskLog.HEADER_SIZE + file.readInt();
+	}
+
+	private static Task task(Long userId, String title, TaskStatus status) {
+		Task task = new Task();
+		task.setTitle(title);
+		task.setStatus(status);
+		task.setCreatedBy(userId);
+		return task;
+	}
+}
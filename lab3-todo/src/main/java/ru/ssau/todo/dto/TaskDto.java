@@ -22,6 +22,15 @@ public class TaskDto {
 
     public TaskDto() {}
 
+    // Используется в JPQL constructor expression — выборка без загрузки сущностей
+    public TaskDto(Long id, String title, TaskStatus status, Long createdBy, LocalDateTime createdAt) {
+        this.id = id;
+        this.title = title;
+        this.status = status;
+        this.createdBy = createdBy;
+        this.createdAt = createdAt;
+    }
+
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
 
@@ -7,17 +7,19 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import ru.ssau.todo.dto.TaskDto;
 import ru.ssau.todo.entity.Task;
 import ru.ssau.todo.entity.TaskStatus;
 
 public interface TaskRepository extends JpaRepository<Task, Long> {
 
-    @Query(value = "SELECT * FROM task WHERE created_by = :userId " +
-    "AND created_at >= COALESCE(CAST(:from AS TIMESTAMP), CAST('1900-01-01' AS TIMESTAMP)) " +
-    "AND created_at <= COALESCE(CAST(:to AS TIMESTAMP), CAST('2100-12-31' AS TIMESTAMP)) " +
-    "ORDER BY created_at DESC",
-    nativeQuery = true)
-    List<Task> findTasksByDateRangeAndUser(
+    // Сразу в DTO: выбираем только колонки задачи и created_by как id,
+    // сущности User (и их роли) для списка не загружаются
+    @Query("SELECT new ru.ssau.todo.dto.TaskDto(t.id, t.title, t.status, t.createdBy.id, t.createdAt) " +
+           "FROM Task t WHERE t.createdBy.id = :userId " +
+           "AND t.createdAt >= :from AND t.createdAt <= :to " +
+           "ORDER BY t.createdAt DESC")
+    List<TaskDto> findTasksByDateRangeAndUser(
             @Param("userId") Long userId,
             @Param("from") LocalDateTime from,
             @Param("to") LocalDateTime to);
@@ -3,7 +3,6 @@ package ru.ssau.todo.service;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -25,6 +24,9 @@ public class TaskService {
     private static final int MAX_ACTIVE_TASKS = 10;
     private static final long DELETE_RESTRICTION_MINUTES = 5;
     private static final Set<TaskStatus> ACTIVE_STATUSES = Set.of(TaskStatus.OPEN, TaskStatus.IN_PROGRESS);
+    // Границы по умолчанию — те же, что раньше подставлялись через COALESCE в SQL
+    private static final LocalDateTime MIN_CREATED_AT = LocalDateTime.of(1900, 1, 1, 0, 0);
+    private static final LocalDateTime MAX_CREATED_AT = LocalDateTime.of(2100, 12, 31, 0, 0);
 
     private final TaskRepository taskRepository;
     private final UserRepository userRepository;
@@ -98,12 +100,13 @@ public class TaskService {
         }
         System.out.println("PPPPPPPPPPPPPPPPPPPPPPPfrom=" + from + ", to=" + to);
 
-        List<Task> tasks = taskRepository.findTasksByDateRangeAndUser(userId, from, to);
+        List<TaskDto> tasks = taskRepository.findTasksByDateRangeAndUser(
+                userId,
+                from != null ? from : MIN_CREATED_AT,
+                to != null ? to : MAX_CREATED_AT);
         System.out.println("333333333333333333333333333from=" + from + ", to=" + to);
-        
-        return tasks.stream()
-                .map(TaskMapper::toDto)
-                .collect(Collectors.toList());
+
+        return tasks;
     }
 
     @Transactional(readOnly = true)
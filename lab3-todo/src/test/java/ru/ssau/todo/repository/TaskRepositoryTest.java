@@ -0,0 +1,78 @@
+package ru.ssau.todo.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jpa.test.autoconfigure.TestEntityManager;
+
+import jakarta.persistence.EntityManagerFactory;
+import ru.ssau.todo.dto.TaskDto;
+import ru.ssau.todo.entity.Task;
+import ru.ssau.todo.entity.TaskStatus;
+import ru.ssau.todo.entity.User;
+
+// Список задач — один SELECT по task: владельцы (и их роли) не загружаются, N+1 нет
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class TaskRepositoryTest {
+
+	private static final int OWNERS = 3;
+	private static final int TASKS_PER_OWNER = 2;
+
+	@Autowired
+	private TestEntityManager entityManager;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private TaskRepository taskRepository;
+
+	private Statistics statistics;
+	private Long firstOwnerId;
+
+	@BeforeEach
+	void setUp() {
+		LocalDateTime now = LocalDateTime.now();
+		for (int u = 0; u < OWNERS; u++) {
+			User user = new User("owner" + u);
+			entityManager.persist(user);
+			if (firstOwnerId == null) {
+				firstOwnerId = user.getId();
+			}
+			for (int t = 0; t < TASKS_PER_OWNER; t++) {
+				Task task = new Task();
+				task.setTitle("task " + u + "-" + t);
+				task.setStatus(TaskStatus.OPEN);
+				task.setCreatedBy(user);
+				task.setCreatedAt(now.minusMinutes(u * TASKS_PER_OWNER + t));
+				entityManager.persist(task);
+			}
+		}
+		entityManager.flush();
+		entityManager.clear();
+
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+	}
+
+	@Test
+	void tasksByDateRangeAreReadInOneStatement() {
+		LocalDateTime now = LocalDateTime.now();
+		List<TaskDto> tasks = taskRepository.findTasksByDateRangeAndUser(
+				firstOwnerId, now.minusDays(1), now.plusDays(1));
+
+		assertThat(tasks).hasSize(TASKS_PER_OWNER);
+		assertThat(tasks).allSatisfy(dto -> assertThat(dto.getCreatedBy()).isEqualTo(firstOwnerId));
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+		assertThat(statistics.getEntityLoadCount()).isZero();
+		assertThat(statistics.getCollectionLoadCount()).isZero();
+	}
+}
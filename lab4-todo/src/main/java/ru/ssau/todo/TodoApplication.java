@@ -2,8 +2,10 @@ package ru.ssau.todo;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class TodoApplication {
 
 	public static void main(String[] args) {
@@ -6,12 +6,16 @@ import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
+import ru.ssau.todo.exception.DbOverloadedException;
+import ru.ssau.todo.exception.HashingOverloadedException;
 import ru.ssau.todo.exception.InvalidTokenException;
 import ru.ssau.todo.exception.TaskBusinessException;
 import ru.ssau.todo.exception.TaskNotFoundException;
@@ -45,6 +49,20 @@ public class GlobalExceptionHandler {
                 .body(buildErrorResponse(HttpStatus.UNAUTHORIZED, "Unauthorized", e.getMessage()));
     }
 
+    @ExceptionHandler(HashingOverloadedException.class)
+    public ResponseEntity<Map<String, Object>> handleHashingOverloaded(HashingOverloadedException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, e.getRetryAfter().toSeconds())))
+                .body(buildErrorResponse(HttpStatus.SERVICE_UNAVAILABLE, "Service Unavailable", e.getMessage()));
+    }
+
+    @ExceptionHandler(DbOverloadedException.class)
+    public ResponseEntity<Map<String, Object>> handleDbOverloaded(DbOverloadedException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, e.getRetryAfter().toSeconds())))
+                .body(buildErrorResponse(HttpStatus.SERVICE_UNAVAILABLE, "Service Unavailable", e.getMessage()));
+    }
+
     @ExceptionHandler(TaskNotFoundException.class)
     public ResponseEntity<Map<String, Object>> handleNotFound(TaskNotFoundException e) {
         Map<String, Object> response = buildErrorResponse(
@@ -84,6 +102,14 @@ public class GlobalExceptionHandler {
                 .body(buildErrorResponse(HttpStatus.CONFLICT, "Conflict", e.getMessage()));
     }
 
+    // Задачу изменили параллельно между чтением и записью
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<Map<String, Object>> handleOptimisticLock(OptimisticLockingFailureException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(buildErrorResponse(HttpStatus.CONFLICT, "Conflict",
+                        "Task was modified concurrently, reload and retry"));
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<Map<String, Object>> handleValidationExceptions(MethodArgumentNotValidException ex) {
         Map<String, Object> response = buildErrorResponse(
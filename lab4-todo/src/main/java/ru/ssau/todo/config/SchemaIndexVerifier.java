@@ -0,0 +1,52 @@
+package ru.ssau.todo.config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.sql.init.dependency.DependsOnDatabaseInitialization;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Проверяет при старте (после миграций Flyway), что индексы, на которые
+ * рассчитаны запросы к задачам, действительно существуют.
+ * Без них запросы молча деградируют до полного сканирования таблицы.
+ */
+@Component
+@DependsOnDatabaseInitialization
+@ConditionalOnProperty(name = "schema.verify-indexes", havingValue = "true", matchIfMissing = true)
+public class SchemaIndexVerifier {
+
+    private static final List<String> REQUIRED_INDEXES = List.of(
+            "idx_task_created_by_created_at",
+            "idx_task_created_at",
+            "idx_task_active_by_owner"
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SchemaIndexVerifier(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void verify() {
+        Set<String> existing = Set.copyOf(jdbcTemplate.queryForList(
+                "SELECT indexname FROM pg_indexes WHERE schemaname = current_schema() AND tablename = 'task'",
+                String.class));
+
+        List<String> missing = new ArrayList<>();
+        for (String index : REQUIRED_INDEXES) {
+            if (!existing.contains(index)) {
+                missing.add(index);
+            }
+        }
+        if (!missing.isEmpty()) {
+            throw new IllegalStateException("Required indexes are missing on table task: " + missing);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package ru.ssau.todo.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
@@ -8,8 +9,10 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 @Configuration
 public class SecurityConfig {
 
+    // Смена auth.bcrypt.cost не ломает старые хэши: cost записан в самом хэше,
+    // а при входе пароль перехэшируется с новым (AuthService.login)
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${auth.bcrypt.cost:10}") int cost) {
+        return new BCryptPasswordEncoder(cost);
     }
 }
\ No newline at end of file
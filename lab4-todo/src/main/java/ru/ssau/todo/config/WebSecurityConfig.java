@@ -47,7 +47,10 @@ public class WebSecurityConfig {
                 .authenticationProvider(daoAuthenticationProvider())
                 .authorizeHttpRequests(auth -> auth
                         // Публичные эндпоинты — не требуют входа
-                        .requestMatchers("/users/register", "/auth/login", "/auth/refresh").permitAll()
+                        .requestMatchers("/users/register", "/auth/login", "/auth/refresh", "/auth/logout").permitAll()
+                        // Проверка живости — открыта, остальной actuator (метрики, Prometheus) — только администратор
+                        .requestMatchers("/actuator/health").permitAll()
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
                         // DELETE /tasks/** — только администратор
                         .requestMatchers(HttpMethod.DELETE, "/tasks/**").hasRole("ADMIN")
                         // Все остальные — только авторизованные пользователи
@@ -1,11 +1,13 @@
 package ru.ssau.todo.controller;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -45,6 +47,16 @@ public class AuthController {
         }
     }
 
+    // Отзывает сессию, которой принадлежит refresh-токен, и access-токен из заголовка
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(@RequestBody(required = false) RefreshRequest request,
+                                       @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String header) {
+        String refreshToken = request != null ? request.getRefreshToken() : null;
+        String accessToken  = header != null && header.startsWith("Bearer ") ? header.substring(7) : null;
+        authService.logout(refreshToken, accessToken);
+        return ResponseEntity.noContent().build();
+    }
+
     @GetMapping("/me")
     public ResponseEntity<AuthUserDto> getCurrentUser() {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
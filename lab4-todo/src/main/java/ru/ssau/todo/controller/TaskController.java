@@ -2,7 +2,9 @@ package ru.ssau.todo.controller;
 
 import java.util.List;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -12,23 +14,35 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.validation.Valid;
+import ru.ssau.todo.dto.TaskBatchResponse;
 import ru.ssau.todo.dto.TaskDto;
 import ru.ssau.todo.dto.TaskFilterDto;
+import ru.ssau.todo.dto.TaskPage;
+import ru.ssau.todo.exception.TaskValidationException;
+import ru.ssau.todo.service.TaskEventHub;
 import ru.ssau.todo.service.TaskService;
 
 @RestController
 @RequestMapping("/tasks")
 public class TaskController {
 
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final TaskService taskService;
+    private final TaskEventHub taskEventHub;
 
-    public TaskController(TaskService taskService) {
+    public TaskController(TaskService taskService, TaskEventHub taskEventHub) {
         this.taskService = taskService;
+        this.taskEventHub = taskEventHub;
     }
 
     @PostMapping
@@ -43,30 +57,77 @@ public class TaskController {
         return ResponseEntity
                 .status(HttpStatus.CREATED)
                 .header("Location", "/tasks/" + created.getId())
+                .eTag(eTag(created))
                 .body(created);
     }
 
+    // Тело — массив задач; ответ 200 с результатом по каждому элементу,
+    // т.к. часть элементов может быть создана, а часть отклонена
+    @PostMapping("/batch")
+    public ResponseEntity<TaskBatchResponse> createTasks(@RequestBody List<TaskDto> tasks) {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        return ResponseEntity.ok(taskService.createTasks(tasks, username));
+    }
+
     @GetMapping("/{id}")
-    public ResponseEntity<TaskDto> getTaskById(@PathVariable Long id) {
-        return ResponseEntity.ok(taskService.findById(id));
+    public ResponseEntity<TaskDto> getTaskById(@PathVariable Long id, WebRequest request) {
+        // С If-None-Match сначала сверяем только версию: на 304 задача не загружается
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+            Long version = taskService.findVersion(id);
+            if (version != null && request.checkNotModified(eTag(id, version))) {
+                return null;
+            }
+        }
+        TaskDto task = taskService.findById(id);
+        return ResponseEntity.ok().eTag(eTag(task)).body(task);
     }
 
     @GetMapping
-    public ResponseEntity<List<TaskDto>> getTasks(@Valid TaskFilterDto filter) {
-        List<TaskDto> tasks = taskService.findAll(
-                filter.getFrom(),
-                filter.getTo(),
-                filter.getUserId()
-        );
-        return ResponseEntity.ok(tasks);
+    public ResponseEntity<List<TaskDto>> getTasks(@Valid TaskFilterDto filter, WebRequest request) {
+        // Сверка только по условному запросу: id и версии строк той же страницы, без заголовков
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null
+                && request.checkNotModified(taskService.findPageETag(filter))) {
+            return null;
+        }
+        TaskPage page = taskService.findAll(filter);
+        // Тело ответа по-прежнему список; курсор следующей страницы — в заголовке
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().eTag(page.getETag());
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page.getItems());
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportTasks(@Valid TaskFilterDto filter) {
+        // Проверяем до начала потока: после первой строки статус ответа уже не поменять
+        taskService.checkUserExists(filter.getUserId());
+        StreamingResponseBody body = out -> taskService.exportTasks(filter, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    // Лента изменений своих задач (SSE): события CREATED, UPDATED, DELETED и resync —
+    // после resync часть событий потеряна, список нужно перечитать через GET /tasks
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamTasks() {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        return taskEventHub.subscribe(taskService.findUserId(username));
     }
 
     @PutMapping("/{id}")
     public ResponseEntity<TaskDto> updateTask(
             @PathVariable Long id,
-            @Valid @RequestBody TaskDto taskDto) {
+            @Valid @RequestBody TaskDto taskDto,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         taskDto.setId(id);
-        return ResponseEntity.ok(taskService.updateTask(taskDto));
+        // Ожидаемая версия — из If-Match, иначе из поля version в теле
+        if (ifMatch != null && !ifMatch.equals("*")) {
+            taskDto.setVersion(parseVersion(id, ifMatch));
+        }
+        TaskDto updated = taskService.updateTask(taskDto);
+        return ResponseEntity.ok().eTag(eTag(updated)).body(updated);
     }
 
     @DeleteMapping("/{id}")
@@ -79,4 +140,25 @@ public class TaskController {
     public ResponseEntity<Long> countActiveTasks(@RequestParam Long userId) {
         return ResponseEntity.ok(taskService.countActiveTasksByUserId(userId));
     }
+
+    private static String eTag(TaskDto task) {
+        return eTag(task.getId(), task.getVersion());
+    }
+
+    private static Long parseVersion(Long id, String eTag) {
+        String prefix = "\"" + id + "-";
+        if (eTag.startsWith(prefix) && eTag.endsWith("\"") && eTag.length() > prefix.length() + 1) {
+            try {
+                return Long.valueOf(eTag.substring(prefix.length(), eTag.length() - 1));
+            } catch (NumberFormatException e) {
+                // ниже — общая ошибка формата
+            }
+        }
+        throw new TaskValidationException("If-Match must be an ETag of this task", "If-Match");
+    }
+
+    // Сильный ETag задачи: id и версия меняются только вместе с содержимым
+    private static String eTag(Long id, Long version) {
+        return "\"" + id + "-" + version + "\"";
+    }
 }
\ No newline at end of file
@@ -0,0 +1,32 @@
+package ru.ssau.todo.dto;
+
+// Результат по одному элементу пакета: index — позиция в исходном массиве запроса
+public class TaskBatchItemResult {
+
+    public enum Status { CREATED, REJECTED }
+
+    private final int index;
+    private final Status status;
+    private final TaskDto task;
+    private final String error;
+
+    private TaskBatchItemResult(int index, Status status, TaskDto task, String error) {
+        this.index = index;
+        this.status = status;
+        this.task = task;
+        this.error = error;
+    }
+
+    public static TaskBatchItemResult created(int index, TaskDto task) {
+        return new TaskBatchItemResult(index, Status.CREATED, task, null);
+    }
+
+    public static TaskBatchItemResult rejected(int index, String error) {
+        return new TaskBatchItemResult(index, Status.REJECTED, null, error);
+    }
+
+    public int getIndex() { return index; }
+    public Status getStatus() { return status; }
+    public TaskDto getTask() { return task; }
+    public String getError() { return error; }
+}
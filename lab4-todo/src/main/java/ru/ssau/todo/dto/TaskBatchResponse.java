@@ -0,0 +1,20 @@
+package ru.ssau.todo.dto;
+
+import java.util.List;
+
+public class TaskBatchResponse {
+
+    private final int created;
+    private final int rejected;
+    private final List<TaskBatchItemResult> items;
+
+    public TaskBatchResponse(int created, int rejected, List<TaskBatchItemResult> items) {
+        this.created = created;
+        this.rejected = rejected;
+        this.items = items;
+    }
+
+    public int getCreated() { return created; }
+    public int getRejected() { return rejected; }
+    public List<TaskBatchItemResult> getItems() { return items; }
+}
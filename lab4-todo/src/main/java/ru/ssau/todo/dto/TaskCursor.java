@@ -0,0 +1,32 @@
+package ru.ssau.todo.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import ru.ssau.todo.exception.TaskValidationException;
+
+/**
+ * Позиция в выдаче задач для keyset-пагинации: последняя отданная пара (createdAt, id).
+ * Клиенту передаётся как непрозрачная строка.
+ */
+public record TaskCursor(LocalDateTime createdAt, long id) {
+
+    public String encode() {
+        String raw = createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static TaskCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int sep = raw.indexOf('|');
+            return new TaskCursor(
+                    LocalDateTime.parse(raw.substring(0, sep)),
+                    Long.parseLong(raw.substring(sep + 1)));
+        } catch (RuntimeException e) {
+            throw new TaskValidationException("Invalid cursor", "cursor");
+        }
+    }
+}
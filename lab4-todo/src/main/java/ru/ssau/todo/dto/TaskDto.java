@@ -22,8 +22,25 @@ public class TaskDto {
 
     private LocalDateTime createdAt;
 
+    // Версия задачи, из неё строится ETag. В PUT — ожидаемая версия (или заголовок If-Match)
+    private Long version;
+
     public TaskDto() {}
 
+    // Используется в JPQL constructor expression — выборка без загрузки сущностей
+    public TaskDto(Long id, String title, TaskStatus status, Long createdBy, LocalDateTime createdAt) {
+        this.id = id;
+        this.title = title;
+        this.status = status;
+        this.createdBy = createdBy;
+        this.createdAt = createdAt;
+    }
+
+    public TaskDto(Long id, String title, TaskStatus status, Long createdBy, LocalDateTime createdAt, Long version) {
+        this(id, title, status, createdBy, createdAt);
+        this.version = version;
+    }
+
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
 
@@ -38,4 +55,7 @@ public class TaskDto {
 
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
 }
\ No newline at end of file
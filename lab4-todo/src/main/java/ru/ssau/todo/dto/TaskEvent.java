@@ -0,0 +1,21 @@
+package ru.ssau.todo.dto;
+
+/**
+ * Изменение задачи для ленты /tasks/stream. Для удаления {@code task} пустой.
+ */
+public record TaskEvent(Type type, Long taskId, Long ownerId, TaskDto task) {
+
+    public enum Type { CREATED, UPDATED, DELETED }
+
+    public static TaskEvent created(TaskDto task) {
+        return new TaskEvent(Type.CREATED, task.getId(), task.getCreatedBy(), task);
+    }
+
+    public static TaskEvent updated(TaskDto task) {
+        return new TaskEvent(Type.UPDATED, task.getId(), task.getCreatedBy(), task);
+    }
+
+    public static TaskEvent deleted(Long taskId, Long ownerId) {
+        return new TaskEvent(Type.DELETED, taskId, ownerId, null);
+    }
+}
@@ -5,6 +5,7 @@ import java.time.LocalDateTime;
 import org.springframework.format.annotation.DateTimeFormat;
 
 import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.Positive;
 
 public class TaskFilterDto {
     
@@ -16,6 +17,12 @@ public class TaskFilterDto {
     
     private Long userId;
 
+    // Курсор из заголовка X-Next-Cursor предыдущей страницы
+    private String cursor;
+
+    @Positive(message = "Page size must be positive")
+    private Integer size;
+
     public TaskFilterDto() {}
 
     public TaskFilterDto(LocalDateTime from, LocalDateTime to, Long userId) {
@@ -40,4 +47,10 @@ public class TaskFilterDto {
 
     public Long getUserId() { return userId; }
     public void setUserId(Long userId) { this.userId = userId; }
+
+    public String getCursor() { return cursor; }
+    public void setCursor(String cursor) { this.cursor = cursor; }
+
+    public Integer getSize() { return size; }
+    public void setSize(Integer size) { this.size = size; }
 }
\ No newline at end of file
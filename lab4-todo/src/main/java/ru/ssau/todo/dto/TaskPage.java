@@ -0,0 +1,22 @@
+package ru.ssau.todo.dto;
+
+import java.util.List;
+
+public class TaskPage {
+
+    private final List<TaskDto> items;
+    // null — это последняя страница
+    private final String nextCursor;
+    // Слабый ETag именно этой страницы
+    private final String eTag;
+
+    public TaskPage(List<TaskDto> items, String nextCursor, String eTag) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.eTag = eTag;
+    }
+
+    public List<TaskDto> getItems() { return items; }
+    public String getNextCursor() { return nextCursor; }
+    public String getETag() { return eTag; }
+}
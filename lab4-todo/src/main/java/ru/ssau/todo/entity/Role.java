@@ -5,18 +5,24 @@ import java.util.List;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.ManyToMany;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import ru.ssau.todo.security.RoleRegistryInvalidationListener;
 
 @Entity
 @Table(name = "roles")
+@EntityListeners(RoleRegistryInvalidationListener.class)
 public class Role {
     
+    // Шаг 1, а не пул: id роли — номер бита в маске токена (не больше 62), дыры в нумерации недопустимы
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "roles_seq")
+    @SequenceGenerator(name = "roles_seq", sequenceName = "roles_id_seq", allocationSize = 1)
     private Long id;
     
     @Column( length = 50, nullable = false, unique = true)
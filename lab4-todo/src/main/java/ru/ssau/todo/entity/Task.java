@@ -2,23 +2,31 @@ package ru.ssau.todo.entity;
 
 import java.time.LocalDateTime;
 
+import org.hibernate.annotations.ColumnDefault;
+
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 
 @Entity
 @Table
 public class Task {
     
+    // Последовательность с pooled-lo: один nextval на 50 id, INSERT-ы можно батчить.
+    // Шаг задаёт INCREMENT BY самой последовательности (V4), см. increment_size_mismatch_strategy
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "task_seq")
+    @SequenceGenerator(name = "task_seq", sequenceName = "task_id_seq", allocationSize = 50)
     private Long id;
     
     @Column(nullable = false)
@@ -28,12 +36,19 @@ public class Task {
     @Column(nullable = false)
     private TaskStatus status;
     
-    @ManyToOne
+    // LAZY: для DTO нужен только id владельца, он есть в прокси без запроса к users
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "created_by")
     private User createdBy;
     
     @Column
     private LocalDateTime createdAt;
+
+    // Растёт при каждом изменении: оптимистическая блокировка и ETag задачи
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
     
     public Task() {}
     
@@ -51,4 +66,7 @@ public class Task {
     
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
 }
\ No newline at end of file
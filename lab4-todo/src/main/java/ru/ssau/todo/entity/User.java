@@ -5,6 +5,7 @@ import java.util.List;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
@@ -12,20 +13,29 @@ import jakarta.persistence.JoinColumn;
 import jakarta.persistence.JoinTable;
 import jakarta.persistence.ManyToMany;
 import jakarta.persistence.OneToMany;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import ru.ssau.todo.security.UserCacheInvalidationListener;
 
 @Entity
 @Table(name = "users")
+@EntityListeners(UserCacheInvalidationListener.class)
 public class User {
     
+    // Как у Task: pooled-lo поверх users_id_seq
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_id_seq", allocationSize = 50)
     private Long id;
     
     @Column(length = 100, nullable = false, unique = true)
     private String username;
     @Column(nullable = false)
     private String password;
+    // Счётчик активных задач меняется только атомарными UPDATE из UserRepository,
+    // поэтому через сущность его не перезаписываем
+    @Column(name = "active_tasks", nullable = false, updatable = false)
+    private int activeTasks;
     @OneToMany(mappedBy = "createdBy")
     private List<Task> tasks = new ArrayList<>();
     
@@ -50,6 +60,8 @@ public class User {
     public void setUsername(String username) { this.username = username; }
     public String getPassword() { return password; }
     public void setPassword(String password) { this.password = password; }
+
+    public int getActiveTasks() { return activeTasks; }
     
     public List<Task> getTasks() { return tasks; }
     public void setTasks(List<Task> tasks) { this.tasks = tasks; }
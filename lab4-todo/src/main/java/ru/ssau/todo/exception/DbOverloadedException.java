@@ -0,0 +1,17 @@
+package ru.ssau.todo.exception;
+
+import java.time.Duration;
+
+public class DbOverloadedException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public DbOverloadedException(Duration retryAfter) {
+        super("Server is busy, retry later");
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,17 @@
+package ru.ssau.todo.exception;
+
+import java.time.Duration;
+
+public class HashingOverloadedException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public HashingOverloadedException(Duration retryAfter) {
+        super("Password hashing queue is full, retry later");
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
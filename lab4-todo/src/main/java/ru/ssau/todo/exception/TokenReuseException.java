@@ -0,0 +1,8 @@
+package ru.ssau.todo.exception;
+
+// Уже использованный refresh-токен предъявлен повторно — вся цепочка сессии отозвана
+public class TokenReuseException extends InvalidTokenException {
+    public TokenReuseException() {
+        super("refresh token reuse detected");
+    }
+}
@@ -0,0 +1,217 @@
+package ru.ssau.todo.filter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import ru.ssau.todo.exception.DbOverloadedException;
+
+/**
+ * Пропускает к обработке не больше запросов, чем соединений в пуле Hikari.
+ * Каждый запрос держит не больше одного соединения (JwtFilter, затем сервис),
+ * поэтому остальные ждут здесь, в очереди с таймаутом, а не внутри пула.
+ * Не дождавшиеся получают 503 с Retry-After — лавина потоков (в том числе виртуальных)
+ * не копится в ожидании соединения до таймаута Hikari.
+ *
+ * <p>Стоит раньше цепочки Spring Security: JwtFilter тоже ходит в БД.
+ *
+ * <p>Работа без БД, которая может долго ждать своей очереди (BCrypt в {@code PasswordHasher}),
+ * выполняется через {@link #withoutPermit}: на это время разрешение возвращается, и всплеск
+ * логинов не отнимает разрешения у остальных запросов.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 100)
+public class DbAdmissionFilter extends OncePerRequestFilter {
+
+    // Лента SSE обращается к БД только при подписке и дальше держит лишь сокет
+    private static final String STREAM_PATH = "/tasks/stream";
+
+    // Разрешение запроса, который обрабатывается в текущем потоке
+    private static final ThreadLocal<Admission> CURRENT = new ThreadLocal<>();
+
+    private static final String REJECTED_BODY =
+            "{\"status\":503,\"error\":\"Service Unavailable\",\"message\":\"Server is busy, retry later\"}";
+
+    private final Semaphore permits;
+    private final long queueTimeoutNanos;
+    private final Duration retryAfter;
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    private final Timer admittedTimer;
+    private final Timer rejectedTimer;
+
+    public DbAdmissionFilter(MeterRegistry meterRegistry,
+                             @Value("${db.admission.permits:${spring.datasource.hikari.maximum-pool-size:10}}") int permits,
+                             @Value("${db.admission.queue-timeout:2s}") Duration queueTimeout) {
+        this.permits = new Semaphore(permits, true);
+        this.queueTimeoutNanos = queueTimeout.toNanos();
+        this.retryAfter = Duration.ofSeconds(Math.max(1, queueTimeout.toSeconds()));
+
+        Gauge.builder("db.admission.waiting", waiting, AtomicInteger::get)
+                .description("Requests waiting for a database admission permit")
+                .register(meterRegistry);
+        Gauge.builder("db.admission.available", this.permits, Semaphore::availablePermits)
+                .description("Free database admission permits")
+                .register(meterRegistry);
+        this.admittedTimer = Timer.builder("db.admission.wait")
+                .description("Time spent waiting for a database admission permit")
+                .tag("outcome", "admitted")
+                .register(meterRegistry);
+        this.rejectedTimer = Timer.builder("db.admission.wait")
+                .description("Time spent waiting for a database admission permit")
+                .tag("outcome", "rejected")
+                .register(meterRegistry);
+    }
+
+    // Служебные эндпоинты (health, метрики) не должны стоять в очереди за нагрузкой
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getRequestURI().startsWith("/actuator");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        if (!acquire()) {
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter.toSeconds()));
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getWriter().write(REJECTED_BODY);
+            return;
+        }
+
+        Admission admission = new Admission();
+        Admission outer = CURRENT.get();
+        CURRENT.set(admission);
+        boolean async = false;
+        try {
+            filterChain.doFilter(request, response);
+            // Выгрузка (StreamingResponseBody) читает из БД уже после выхода из цепочки —
+            // разрешение держим до завершения асинхронной обработки
+            if (request.isAsyncStarted() && !STREAM_PATH.equals(request.getRequestURI())) {
+                request.getAsyncContext().addListener(new ReleaseOnComplete(admission));
+                async = true;
+            }
+        } finally {
+            restore(outer);
+            if (!async) {
+                admission.release();
+            }
+        }
+    }
+
+    /**
+     * Выполняет работу без обращений к БД, вернув на это время разрешение текущего запроса,
+     * и забирает разрешение обратно — с тем же таймаутом, что и на входе. Не дождался —
+     * {@link DbOverloadedException} (503). Вне запроса под фильтром просто выполняет работу.
+     * Транзакция вокруг вызова держала бы соединение, так что вызывать — только вне её.
+     */
+    public static <T> T withoutPermit(Supplier<T> work) {
+        Admission admission = CURRENT.get();
+        if (admission == null || !admission.held) {
+            return work.get();
+        }
+        admission.release();
+        try {
+            return work.get();
+        } finally {
+            if (!admission.filter().acquire()) {
+                throw new DbOverloadedException(admission.filter().retryAfter);
+            }
+            admission.held = true;
+        }
+    }
+
+    private boolean acquire() {
+        long start = System.nanoTime();
+        boolean admitted;
+        waiting.incrementAndGet();
+        try {
+            admitted = permits.tryAcquire(queueTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            admitted = false;
+        } finally {
+            waiting.decrementAndGet();
+        }
+        (admitted ? admittedTimer : rejectedTimer).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return admitted;
+    }
+
+    private static void restore(Admission outer) {
+        if (outer == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(outer);
+        }
+    }
+
+    // Разрешение одного запроса. Возвращает и забирает его поток запроса,
+    // а после асинхронной обработки отпускает поток контейнера
+    private final class Admission {
+
+        private volatile boolean held = true;
+
+        private DbAdmissionFilter filter() {
+            return DbAdmissionFilter.this;
+        }
+
+        private void release() {
+            if (held) {
+                held = false;
+                permits.release();
+            }
+        }
+    }
+
+    private static final class ReleaseOnComplete implements AsyncListener {
+
+        private final Admission admission;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private ReleaseOnComplete(Admission admission) {
+            this.admission = admission;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) { release(); }
+
+        @Override
+        public void onTimeout(AsyncEvent event) { release(); }
+
+        @Override
+        public void onError(AsyncEvent event) { release(); }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {}
+
+        private void release() {
+            if (released.compareAndSet(false, true)) {
+                admission.release();
+            }
+        }
+    }
+}
@@ -1,24 +1,30 @@
 package ru.ssau.todo.filter;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import ru.ssau.todo.entity.User;
+import ru.ssau.todo.exception.InvalidTokenException;
 import ru.ssau.todo.exception.TokenException;
 import ru.ssau.todo.repository.UserRepository;
+import ru.ssau.todo.security.JwtClaims;
+import ru.ssau.todo.security.PrincipalCache;
+import ru.ssau.todo.security.PrincipalCache.CachedPrincipal;
+import ru.ssau.todo.security.RoleRegistry;
+import ru.ssau.todo.security.TokenDenylist;
 import ru.ssau.todo.service.TokenService;
 
 @Component
@@ -27,15 +33,33 @@ public class JwtFilter extends OncePerRequestFilter {
     private static final String[] EXCLUDED_PATHS = {
             "/auth/login",
             "/auth/refresh",
+            "/auth/logout",
             "/users/register"
     };
 
     private final TokenService   tokenService;
     private final UserRepository userRepository;
-
-    public JwtFilter(TokenService tokenService, UserRepository userRepository) {
+    private final PrincipalCache principalCache;
+    private final RoleRegistry   roleRegistry;
+    private final TokenDenylist  tokenDenylist;
+    private final Timer authenticatedTimer;
+    private final Timer rejectedTimer;
+    private final Timer failedTimer;
+
+    public JwtFilter(TokenService tokenService,
+                     UserRepository userRepository,
+                     PrincipalCache principalCache,
+                     RoleRegistry roleRegistry,
+                     TokenDenylist tokenDenylist,
+                     MeterRegistry meterRegistry) {
         this.tokenService   = tokenService;
         this.userRepository = userRepository;
+        this.principalCache = principalCache;
+        this.roleRegistry   = roleRegistry;
+        this.tokenDenylist  = tokenDenylist;
+        this.authenticatedTimer = authenticationTimer(meterRegistry, "authenticated");
+        this.rejectedTimer      = authenticationTimer(meterRegistry, "rejected");
+        this.failedTimer        = authenticationTimer(meterRegistry, "failed");
     }
 
     @Override
@@ -60,46 +84,77 @@ public class JwtFilter extends OncePerRequestFilter {
         }
 
         String token = header.substring(7);
+        long start = System.nanoTime();
 
         try {
-            Map<String, Object> payload = tokenService.validateToken(token);
+            JwtClaims claims = tokenService.validateToken(token);
             // validateToken бросает TokenExpiredException или InvalidTokenException —
             // теперь понятно по названию что именно пошло не так
+            if (!claims.isAccessToken()) {
+                throw new InvalidTokenException("refresh token cannot be used for authentication");
+            }
+            // Подпись и срок в порядке, но токен могли отозвать (выход) — проверка без похода в БД
+            if (tokenDenylist.isRevoked(claims.jti())) {
+                throw new InvalidTokenException("token revoked");
+            }
 
-            Long userId = ((Number) payload.get("userId")).longValue();
-            User user = userRepository.findById(userId)
-                    .orElseThrow(() -> new RuntimeException("User not found: " + userId));
-
-            @SuppressWarnings("unchecked")
-            Collection<String> roles = (Collection<String>) payload.get("roles");
-
-            Collection<SimpleGrantedAuthority> authorities = Collections.emptyList();
-            if (roles != null) {
-                authorities = new ArrayList<>();
-                for (String role : roles) {
-                    String roleName = role.startsWith("ROLE_") ? role : "ROLE_" + role;
-                    authorities.add(new SimpleGrantedAuthority(roleName));
+            String username;
+            Collection<? extends GrantedAuthority> authorities;
+            if (claims.username() != null) {
+                // Имя пользователя уже есть в токене — в базу не ходим совсем
+                username    = claims.username();
+                authorities = roleRegistry.authorities(claims.roleMask());
+            } else {
+                long userId = claims.userId();
+                CachedPrincipal principal = principalCache.get(userId, this::loadPrincipal);
+                if (principal == null) {
+                    throw new RuntimeException("User not found: " + userId);
                 }
+                username    = principal.username();
+                authorities = principal.authorities();
             }
 
             SecurityContextHolder.getContext().setAuthentication(
-                    new UsernamePasswordAuthenticationToken(user.getUsername(), null, authorities)
+                    new UsernamePasswordAuthenticationToken(username, null, authorities)
             );
 
         } catch (TokenException e) {
             // Специфичные исключения токена — точно знаем что это проблема токена
+            record(rejectedTimer, start);
             sendUnauthorized(response, e.getMessage());
             return;
         } catch (Exception e) {
             // Любая другая ошибка (например пользователь не найден в БД) — тоже 401
+            record(failedTimer, start);
             SecurityContextHolder.clearContext();
             sendUnauthorized(response, "Authentication failed");
             return;
         }
 
+        // Меряем только аутентификацию, без обработки самого запроса дальше по цепочке
+        record(authenticatedTimer, start);
         filterChain.doFilter(request, response);
     }
 
+    private static Timer authenticationTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("auth.filter")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private static void record(Timer timer, long start) {
+        timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private CachedPrincipal loadPrincipal(long userId) {
+        User user = userRepository.findWithRolesById(userId).orElse(null);
+        if (user == null) {
+            return null;
+        }
+        return new CachedPrincipal(user.getUsername(),
+                roleRegistry.authorities(roleRegistry.toMask(user.getRoles())));
+    }
+
     private void sendUnauthorized(HttpServletResponse response, String message) throws IOException {
         SecurityContextHolder.clearContext();
         response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
@@ -15,6 +15,7 @@ public class TaskMapper {
         dto.setStatus(task.getStatus());
         dto.setCreatedAt(task.getCreatedAt());
         dto.setCreatedBy(task.getCreatedBy() != null ? task.getCreatedBy().getId() : null);
+        dto.setVersion(task.getVersion());
         return dto;
     }
 
@@ -0,0 +1,15 @@
+package ru.ssau.todo.repository;
+
+import java.util.List;
+
+import ru.ssau.todo.dto.TaskDto;
+
+/**
+ * Массовая вставка задач одним JDBC-батчем.
+ * Поля title, status, createdBy и createdAt должны быть уже заполнены и проверены.
+ */
+public interface TaskBatchRepository {
+
+    // Возвращает id в том же порядке, что и переданные задачи
+    List<Long> insertAll(List<TaskDto> tasks);
+}
@@ -0,0 +1,55 @@
+package ru.ssau.todo.repository;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+
+import ru.ssau.todo.dto.TaskDto;
+
+// Один prepared statement на весь батч вместо INSERT + чтения id на каждую строку.
+// Идёт в той же транзакции и на том же соединении, что и JPA-репозитории
+public class TaskBatchRepositoryImpl implements TaskBatchRepository {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO task (title, status, created_by, created_at) " +
+            "VALUES (:title, :status, :createdBy, :createdAt)";
+    private static final String[] KEY_COLUMNS = {"id"};
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public TaskBatchRepositoryImpl(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public List<Long> insertAll(List<TaskDto> tasks) {
+        if (tasks.isEmpty()) {
+            return List.of();
+        }
+        SqlParameterSource[] batch = new SqlParameterSource[tasks.size()];
+        for (int i = 0; i < batch.length; i++) {
+            TaskDto task = tasks.get(i);
+            batch[i] = new MapSqlParameterSource()
+                    .addValue("title", task.getTitle())
+                    .addValue("status", task.getStatus().name())
+                    .addValue("createdBy", task.getCreatedBy())
+                    .addValue("createdAt", Timestamp.valueOf(task.getCreatedAt()));
+        }
+
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(INSERT_SQL, batch, keyHolder, KEY_COLUMNS);
+
+        List<Long> ids = new ArrayList<>(batch.length);
+        for (Map<String, Object> keys : keyHolder.getKeyList()) {
+            ids.add(((Number) keys.get("id")).longValue());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,34 @@
+package ru.ssau.todo.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import ru.ssau.todo.dto.TaskDto;
+
+/**
+ * Выборки задач с необязательными фильтрами.
+ * Любой параметр, кроме {@code limit}, может быть null — тогда условие не попадает в SQL.
+ * Результат — сразу DTO: created_by читается как id, сущности User не загружаются.
+ */
+public interface TaskQueryRepository {
+
+    List<TaskDto> findTasksByDateRangeAndUser(LocalDateTime from,
+                                           LocalDateTime to,
+                                           Long userId,
+                                           LocalDateTime cursorAt,
+                                           Long cursorId,
+                                           int limit);
+
+    Stream<TaskDto> streamTasks(LocalDateTime from, LocalDateTime to, Long userId);
+
+    // Те же строки, что findTasksByDateRangeAndUser, но только id и версии — для ETag страницы
+    List<VersionedId> findPageVersions(LocalDateTime from,
+                                       LocalDateTime to,
+                                       Long userId,
+                                       LocalDateTime cursorAt,
+                                       Long cursorId,
+                                       int limit);
+
+    record VersionedId(long id, long version) {}
+}
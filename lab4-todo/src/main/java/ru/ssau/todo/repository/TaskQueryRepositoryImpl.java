@@ -0,0 +1,158 @@
+package ru.ssau.todo.repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import jakarta.persistence.TypedQuery;
+import ru.ssau.todo.dto.TaskDto;
+import ru.ssau.todo.entity.TaskStatus;
+
+/**
+ * Вместо одного запроса вида {@code (:userId IS NULL OR created_by = :userId)}
+ * строим SQL только из реально заданных условий. Для каждой комбинации фильтров
+ * текст запроса один и тот же, поэтому у каждой формы свой подготовленный
+ * statement и свой план — с подходящим индексом, а не общий план на все случаи.
+ */
+public class TaskQueryRepositoryImpl implements TaskQueryRepository {
+
+    private static final int USER   = 1;
+    private static final int FROM   = 2;
+    private static final int TO     = 4;
+    private static final int CURSOR = 8;
+
+    private static final int EXPORT_FETCH_SIZE = 500;
+
+    // Тексты запросов для всех 16 форм строятся один раз
+    private static final String[] PAGE_SQL  = new String[16];
+    private static final String[] EXPORT_QL = new String[8];
+    private static final String[] VERSIONS_SQL = new String[16];
+
+    static {
+        for (int shape = 0; shape < PAGE_SQL.length; shape++) {
+            PAGE_SQL[shape] = "SELECT id, title, status, created_by, created_at, version FROM task" + where(shape,
+                    "created_by = :userId",
+                    "created_at >= :from",
+                    "created_at <= :to",
+                    "(created_at, id) < (:cursorAt, :cursorId)")
+                    + " ORDER BY created_at DESC, id DESC LIMIT :limit";
+        }
+        for (int shape = 0; shape < EXPORT_QL.length; shape++) {
+            EXPORT_QL[shape] = "SELECT new ru.ssau.todo.dto.TaskDto("
+                    + "t.id, t.title, t.status, t.createdBy.id, t.createdAt, t.version) FROM Task t"
+                    + where(shape,
+                    "t.createdBy.id = :userId",
+                    "t.createdAt >= :from",
+                    "t.createdAt <= :to",
+                    null)
+                    + " ORDER BY t.createdAt DESC, t.id DESC";
+        }
+        for (int shape = 0; shape < VERSIONS_SQL.length; shape++) {
+            VERSIONS_SQL[shape] = PAGE_SQL[shape].replace(
+                    "SELECT id, title, status, created_by, created_at, version", "SELECT id, version");
+        }
+    }
+
+    // Общий с TaskUpdateRepositoryImpl: RETURNING отдаёт те же колонки
+    static final RowMapper<TaskDto> TASK_DTO_ROW_MAPPER = (rs, rowNum) -> {
+        long createdBy = rs.getLong("created_by");
+        Long owner = rs.wasNull() ? null : createdBy;
+        Timestamp createdAt = rs.getTimestamp("created_at");
+        return new TaskDto(
+                rs.getLong("id"),
+                rs.getString("title"),
+                TaskStatus.valueOf(rs.getString("status")),
+                owner,
+                createdAt != null ? createdAt.toLocalDateTime() : null,
+                rs.getLong("version"));
+    };
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public TaskQueryRepositoryImpl(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public List<TaskDto> findTasksByDateRangeAndUser(LocalDateTime from,
+                                                     LocalDateTime to,
+                                                     Long userId,
+                                                     LocalDateTime cursorAt,
+                                                     Long cursorId,
+                                                     int limit) {
+        int shape = shape(userId, from, to) | (cursorAt != null ? CURSOR : 0);
+        return jdbcTemplate.query(PAGE_SQL[shape], pageParams(shape, from, to, userId, cursorAt, cursorId, limit),
+                TASK_DTO_ROW_MAPPER);
+    }
+
+    // Потоковая выгрузка: строки читаются курсором JDBC порциями по fetch size
+    // и сразу превращаются в DTO, сущности в persistence context не копятся
+    @Override
+    public Stream<TaskDto> streamTasks(LocalDateTime from, LocalDateTime to, Long userId) {
+        int shape = shape(userId, from, to);
+        TypedQuery<TaskDto> query = entityManager.createQuery(EXPORT_QL[shape], TaskDto.class)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, EXPORT_FETCH_SIZE)
+                .setHint(HibernateHints.HINT_READ_ONLY, true);
+        bind(query, shape, userId, from, to);
+        return query.getResultStream();
+    }
+
+    @Override
+    public List<VersionedId> findPageVersions(LocalDateTime from,
+                                              LocalDateTime to,
+                                              Long userId,
+                                              LocalDateTime cursorAt,
+                                              Long cursorId,
+                                              int limit) {
+        int shape = shape(userId, from, to) | (cursorAt != null ? CURSOR : 0);
+        return jdbcTemplate.query(VERSIONS_SQL[shape], pageParams(shape, from, to, userId, cursorAt, cursorId, limit),
+                (rs, rowNum) -> new VersionedId(rs.getLong("id"), rs.getLong("version")));
+    }
+
+    private static int shape(Long userId, LocalDateTime from, LocalDateTime to) {
+        return (userId != null ? USER : 0)
+                | (from != null ? FROM : 0)
+                | (to != null ? TO : 0);
+    }
+
+    private static MapSqlParameterSource pageParams(int shape, LocalDateTime from, LocalDateTime to, Long userId,
+                                                    LocalDateTime cursorAt, Long cursorId, int limit) {
+        MapSqlParameterSource params = new MapSqlParameterSource("limit", limit);
+        if ((shape & USER) != 0) params.addValue("userId", userId);
+        if ((shape & FROM) != 0) params.addValue("from", Timestamp.valueOf(from));
+        if ((shape & TO) != 0)   params.addValue("to", Timestamp.valueOf(to));
+        if ((shape & CURSOR) != 0) {
+            params.addValue("cursorAt", Timestamp.valueOf(cursorAt));
+            params.addValue("cursorId", cursorId);
+        }
+        return params;
+    }
+
+    private static void bind(Query query, int shape, Long userId, LocalDateTime from, LocalDateTime to) {
+        if ((shape & USER) != 0) query.setParameter("userId", userId);
+        if ((shape & FROM) != 0) query.setParameter("from", from);
+        if ((shape & TO) != 0)   query.setParameter("to", to);
+    }
+
+    private static String where(int shape, String user, String from, String to, String cursor) {
+        List<String> conditions = new ArrayList<>(4);
+        if ((shape & USER) != 0)   conditions.add(user);
+        if ((shape & FROM) != 0)   conditions.add(from);
+        if ((shape & TO) != 0)     conditions.add(to);
+        if ((shape & CURSOR) != 0) conditions.add(cursor);
+        return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+    }
+}
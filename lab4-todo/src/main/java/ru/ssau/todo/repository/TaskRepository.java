@@ -1,27 +1,31 @@
 package ru.ssau.todo.repository;
 
-import java.time.LocalDateTime;
-import java.util.List;
+import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import jakarta.persistence.LockModeType;
 import ru.ssau.todo.entity.Task;
 
-public interface TaskRepository extends JpaRepository<Task, Long> {
+// Выборки с необязательными фильтрами — в TaskQueryRepositoryImpl, массовая вставка — в TaskBatchRepositoryImpl,
+// условное изменение — в TaskUpdateRepositoryImpl
+public interface TaskRepository extends JpaRepository<Task, Long>, TaskQueryRepository, TaskBatchRepository,
+        TaskUpdateRepository {
     
-    @Query(value = "SELECT * FROM task WHERE " +
-   "(:userId IS NULL OR created_by = :userId) " +
-   "AND (cast(:from as timestamp) IS NULL OR created_at >= cast(:from as timestamp)) " +
-   "AND (cast(:to as timestamp) IS NULL OR created_at <= cast(:to as timestamp)) " +
-   "ORDER BY created_at DESC",
-   nativeQuery = true)
-List<Task> findTasksByDateRangeAndUser(
-        @Param("from") LocalDateTime from,
-        @Param("to") LocalDateTime to,
-        @Param("userId") Long userId);
     @Query("SELECT COUNT(t) FROM Task t WHERE t.createdBy.id = :userId " +
            "AND (t.status = 'OPEN' OR t.status = 'IN_PROGRESS')")
     long countActiveTasksByUserId(@Param("userId") Long userId);
+
+    // SELECT ... FOR UPDATE: переход статуса и счётчик active_tasks считаются по строке,
+    // которую параллельная транзакция уже не изменит и не удалит
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM Task t WHERE t.id = :id")
+    Optional<Task> findByIdForUpdate(@Param("id") Long id);
+
+    // Для условного GET: сверяем ETag без загрузки задачи
+    @Query("SELECT t.version FROM Task t WHERE t.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
 }
\ No newline at end of file
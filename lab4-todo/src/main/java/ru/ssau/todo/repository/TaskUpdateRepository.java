@@ -0,0 +1,18 @@
+package ru.ssau.todo.repository;
+
+import java.util.Optional;
+import java.util.Set;
+
+import ru.ssau.todo.dto.TaskDto;
+import ru.ssau.todo.entity.TaskStatus;
+
+/**
+ * Изменение задачи одним условным UPDATE без предварительного чтения.
+ * Поля id, title, status и createdBy должны быть заполнены; version — ожидаемая
+ * версия задачи, {@code null} — без проверки версии.
+ */
+public interface TaskUpdateRepository {
+
+    // Пусто, если строка не подошла: нет задачи, чужой владелец, другая версия или исчерпан лимит
+    Optional<TaskDto> updateIfCurrent(TaskDto task, Set<TaskStatus> activeStatuses, int activeLimit);
+}
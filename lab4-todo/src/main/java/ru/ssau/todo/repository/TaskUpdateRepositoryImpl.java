@@ -0,0 +1,66 @@
+package ru.ssau.todo.repository;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import ru.ssau.todo.dto.TaskDto;
+import ru.ssau.todo.entity.TaskStatus;
+
+/**
+ * Проверка владельца и версии, счётчик активных задач и сама запись — один statement.
+ * Строка задачи блокируется в {@code target}; счётчик пользователя меняется в {@code slot}
+ * только при переходе между активным и неактивным статусом, и при нехватке слота
+ * основной UPDATE не находит строк. Все части выполняются или не выполняются вместе.
+ */
+public class TaskUpdateRepositoryImpl implements TaskUpdateRepository {
+
+    private static final String UPDATE_SQL_TEMPLATE =
+            "WITH target AS ("
+            + " SELECT id, :newActive - CASE WHEN status IN (:activeStatuses) THEN 1 ELSE 0 END AS delta"
+            + " FROM task WHERE id = :id AND created_by = :createdBy%s"
+            + " FOR UPDATE"
+            + "), slot AS ("
+            + " UPDATE users u SET active_tasks = GREATEST(u.active_tasks + target.delta, 0)"
+            + " FROM target"
+            + " WHERE u.id = :createdBy AND target.delta <> 0"
+            + " AND (target.delta < 0 OR u.active_tasks < :activeLimit)"
+            + " RETURNING u.id"
+            + ")"
+            + " UPDATE task t SET title = :title, status = :status, version = t.version + 1"
+            + " FROM target"
+            + " WHERE t.id = target.id AND (target.delta = 0 OR EXISTS (SELECT 1 FROM slot))"
+            + " RETURNING t.id, t.title, t.status, t.created_by, t.created_at, t.version";
+
+    // Без ожидаемой версии — отдельный текст запроса, а не (:version IS NULL OR ...)
+    private static final String UPDATE_SQL = String.format(UPDATE_SQL_TEMPLATE, "");
+    private static final String UPDATE_VERSIONED_SQL = String.format(UPDATE_SQL_TEMPLATE, " AND version = :version");
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public TaskUpdateRepositoryImpl(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public Optional<TaskDto> updateIfCurrent(TaskDto task, Set<TaskStatus> activeStatuses, int activeLimit) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("id", task.getId())
+                .addValue("createdBy", task.getCreatedBy())
+                .addValue("title", task.getTitle())
+                .addValue("status", task.getStatus().name())
+                .addValue("newActive", activeStatuses.contains(task.getStatus()) ? 1 : 0)
+                .addValue("activeStatuses", activeStatuses.stream().map(Enum::name).toList())
+                .addValue("activeLimit", activeLimit);
+        String sql = UPDATE_SQL;
+        if (task.getVersion() != null) {
+            params.addValue("version", task.getVersion());
+            sql = UPDATE_VERSIONED_SQL;
+        }
+        List<TaskDto> updated = jdbcTemplate.query(sql, params, TaskQueryRepositoryImpl.TASK_DTO_ROW_MAPPER);
+        return updated.stream().findFirst();
+    }
+}
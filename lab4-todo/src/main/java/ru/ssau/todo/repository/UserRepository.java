@@ -1,12 +1,53 @@
 package ru.ssau.todo.repository;
 
 import java.util.Optional;
+import java.util.stream.Stream;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import ru.ssau.todo.entity.User;
 
 public interface UserRepository extends JpaRepository<User, Long> {
     
     Optional<User> findByUsername(String username);
+
+    // Для заполнения UsernameBloomFilter при старте; только внутри транзакции
+    @Query("SELECT u.username FROM User u")
+    Stream<String> streamAllUsernames();
+
+    // Роли нужны сразу: JwtFilter работает вне транзакции, ленивая загрузка там не сработает
+    @EntityGraph(attributePaths = "roles")
+    Optional<User> findWithRolesById(Long id);
+
+    @Query("SELECT u.activeTasks FROM User u WHERE u.id = :userId")
+    Optional<Integer> findActiveTasksById(@Param("userId") Long userId);
+
+    // Условный инкремент блокирует строку пользователя до конца транзакции,
+    // поэтому параллельные запросы одного пользователя не превысят лимит
+    @Modifying
+    @Query(value = "UPDATE users SET active_tasks = active_tasks + 1 " +
+                   "WHERE id = :userId AND active_tasks < :limit",
+           nativeQuery = true)
+    int tryIncrementActiveTasks(@Param("userId") Long userId, @Param("limit") int limit);
+
+    @Modifying
+    @Query(value = "UPDATE users SET active_tasks = active_tasks - 1 " +
+                   "WHERE id = :userId AND active_tasks > 0",
+           nativeQuery = true)
+    int decrementActiveTasks(@Param("userId") Long userId);
+
+    // Для пакетного создания: счётчик читается один раз под блокировкой строки,
+    // весь батч проверяется по нему, затем прибавляется одним UPDATE
+    @Query(value = "SELECT active_tasks FROM users WHERE id = :userId FOR UPDATE",
+           nativeQuery = true)
+    Optional<Integer> lockActiveTasksById(@Param("userId") Long userId);
+
+    @Modifying
+    @Query(value = "UPDATE users SET active_tasks = active_tasks + :delta WHERE id = :userId",
+           nativeQuery = true)
+    int addActiveTasks(@Param("userId") Long userId, @Param("delta") int delta);
 }
\ No newline at end of file
@@ -0,0 +1,89 @@
+package ru.ssau.todo.security;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Битовый массив фильтра Блума. Добавление и проверка без блокировок,
+ * ключ — уже посчитанный 64-битный хэш; позиции берутся двойным хэшированием.
+ */
+final class BloomBits {
+
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+    private final AtomicLong bitsSet = new AtomicLong();
+
+    BloomBits(long expectedInsertions, double falsePositiveRate) {
+        long n = Math.max(1, expectedInsertions);
+        // Классические формулы: m = -n·ln p / (ln 2)², k = m/n · ln 2
+        long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.max(1, (m + 63) / 64);
+        this.bits = new AtomicLongArray(words);
+        this.bitCount = words * 64L;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+    }
+
+    void add(long hash) {
+        long h2 = mix(hash) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long index = Math.floorMod(hash + i * h2, bitCount);
+            int word = (int) (index >>> 6);
+            long mask = 1L << index;
+            long current;
+            do {
+                current = bits.get(word);
+                if ((current & mask) != 0) {
+                    break;
+                }
+            } while (!bits.compareAndSet(word, current, current | mask));
+            if ((current & mask) == 0) {
+                bitsSet.incrementAndGet();
+            }
+        }
+    }
+
+    boolean mightContain(long hash) {
+        long h2 = mix(hash) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long index = Math.floorMod(hash + i * h2, bitCount);
+            if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Оценка по доле взведённых бит
+    double expectedFalsePositiveRate() {
+        return Math.pow((double) bitsSet.get() / bitCount, hashCount);
+    }
+
+    long bitCount() {
+        return bitCount;
+    }
+
+    int hashCount() {
+        return hashCount;
+    }
+
+    static long hash(String value) {
+        // FNV-1a по байтам UTF-8 и финальное перемешивание
+        long h = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            h = (h ^ (b & 0xff)) * 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    // Финализатор MurmurHash3
+    static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,138 @@
+package ru.ssau.todo.security;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Refresh-токены в памяти процесса — для одного экземпляра приложения и тестов.
+ * Токены и семейства лежат в {@link ConcurrentHashMap}; для очистки ключи дополнительно
+ * разложены по корзинам минуты истечения, так что очистка проходит только по истёкшим
+ * корзинам, а не по всем живым сессиям.
+ */
+@Component
+@ConditionalOnProperty(name = "auth.refresh.store", havingValue = "memory")
+public class InMemoryRefreshTokenStore implements RefreshTokenStore {
+
+    private static final long BUCKET_SECONDS = 60;
+
+    private final Map<String, Token> tokens = new ConcurrentHashMap<>();
+    private final Map<UUID, Family> families = new ConcurrentHashMap<>();
+
+    // Срок всегда в будущем, поэтому в корзину, которую уже чистят, ничего не добавляется
+    private final ConcurrentSkipListMap<Long, Queue<String>> tokenBuckets = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<Long, Queue<UUID>> familyBuckets = new ConcurrentSkipListMap<>();
+
+    @Override
+    public void startFamily(UUID familyId, long userId, Instant expiresAt) {
+        families.put(familyId, new Family(expiresAt.getEpochSecond()));
+        schedule(familyBuckets, expiresAt.getEpochSecond(), familyId);
+    }
+
+    @Override
+    public void addToken(String tokenHash, UUID familyId, long userId, Instant expiresAt) {
+        long expires = expiresAt.getEpochSecond();
+        tokens.put(tokenHash, new Token(familyId, userId, expires));
+        schedule(tokenBuckets, expires, tokenHash);
+    }
+
+    @Override
+    public Optional<StoredToken> find(String tokenHash) {
+        Token token = tokens.get(tokenHash);
+        if (token == null) {
+            return Optional.empty();
+        }
+        Family family = families.get(token.familyId);
+        boolean revoked = family == null || family.revoked;
+        long familyExpiresAt = family == null ? token.expiresAt : family.expiresAt;
+        return Optional.of(new StoredToken(token.familyId, token.userId,
+                Instant.ofEpochSecond(token.expiresAt), Instant.ofEpochSecond(familyExpiresAt),
+                token.used.get(), revoked));
+    }
+
+    @Override
+    public boolean markUsed(String tokenHash) {
+        Token token = tokens.get(tokenHash);
+        return token != null && token.used.compareAndSet(false, true);
+    }
+
+    @Override
+    public void revokeFamily(UUID familyId) {
+        Family family = families.get(familyId);
+        if (family != null) {
+            family.revoked = true;
+        }
+    }
+
+    @Override
+    public int purgeExpired(Instant now) {
+        long nowSeconds = now.getEpochSecond();
+        int purged = drain(tokenBuckets, nowSeconds, hash -> {
+            Token token = tokens.get(hash);
+            return token != null && token.expiresAt <= nowSeconds && tokens.remove(hash, token);
+        });
+        drain(familyBuckets, nowSeconds, id -> {
+            Family family = families.get(id);
+            return family != null && family.expiresAt <= nowSeconds && families.remove(id, family);
+        });
+        return purged;
+    }
+
+    public int size() {
+        return tokens.size();
+    }
+
+    private static <K> void schedule(ConcurrentSkipListMap<Long, Queue<K>> buckets, long expiresAt, K key) {
+        buckets.computeIfAbsent(expiresAt / BUCKET_SECONDS, b -> new ConcurrentLinkedQueue<>()).add(key);
+    }
+
+    // Снимает все корзины, целиком истёкшие к моменту now; removed — удалил ли ключ запись
+    private static <K> int drain(ConcurrentSkipListMap<Long, Queue<K>> buckets, long now, Predicate<K> removed) {
+        int count = 0;
+        long lastExpired = now / BUCKET_SECONDS - 1;
+        Map.Entry<Long, Queue<K>> bucket;
+        while ((bucket = buckets.firstEntry()) != null && bucket.getKey() <= lastExpired) {
+            buckets.remove(bucket.getKey());
+            for (K key : bucket.getValue()) {
+                if (removed.test(key)) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static final class Token {
+
+        private final UUID familyId;
+        private final long userId;
+        private final long expiresAt;
+        private final AtomicBoolean used = new AtomicBoolean();
+
+        private Token(UUID familyId, long userId, long expiresAt) {
+            this.familyId = familyId;
+            this.userId = userId;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static final class Family {
+
+        private final long expiresAt;
+        private volatile boolean revoked;
+
+        private Family(long expiresAt) {
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package ru.ssau.todo.security;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Refresh-токены в PostgreSQL (таблицы из V5__refresh_tokens.sql).
+ * Поиск, пометка и отзыв — по первичному ключу; отзыв семейства — одна строка
+ * {@code refresh_token_family}, токены семейства при этом не трогаются.
+ */
+@Component
+@ConditionalOnProperty(name = "auth.refresh.store", havingValue = "jdbc", matchIfMissing = true)
+public class JdbcRefreshTokenStore implements RefreshTokenStore {
+
+    private static final String INSERT_FAMILY_SQL =
+            "INSERT INTO refresh_token_family (id, user_id, expires_at) VALUES (:familyId, :userId, :expiresAt)";
+    private static final String INSERT_TOKEN_SQL =
+            "INSERT INTO refresh_token (token_hash, family_id, user_id, expires_at) " +
+            "VALUES (:tokenHash, :familyId, :userId, :expiresAt)";
+    private static final String FIND_SQL =
+            "SELECT t.family_id, t.user_id, t.expires_at, f.expires_at AS family_expires_at, t.used, f.revoked " +
+            "FROM refresh_token t JOIN refresh_token_family f ON f.id = t.family_id " +
+            "WHERE t.token_hash = :tokenHash";
+    private static final String MARK_USED_SQL =
+            "UPDATE refresh_token SET used = TRUE WHERE token_hash = :tokenHash AND used = FALSE";
+    private static final String REVOKE_FAMILY_SQL =
+            "UPDATE refresh_token_family SET revoked = TRUE WHERE id = :familyId";
+    private static final String PURGE_TOKENS_SQL =
+            "DELETE FROM refresh_token WHERE expires_at <= :now";
+    private static final String PURGE_FAMILIES_SQL =
+            "DELETE FROM refresh_token_family WHERE expires_at <= :now";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public JdbcRefreshTokenStore(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void startFamily(UUID familyId, long userId, Instant expiresAt) {
+        jdbcTemplate.update(INSERT_FAMILY_SQL, new MapSqlParameterSource()
+                .addValue("familyId", familyId)
+                .addValue("userId", userId)
+                .addValue("expiresAt", Timestamp.from(expiresAt)));
+    }
+
+    @Override
+    public void addToken(String tokenHash, UUID familyId, long userId, Instant expiresAt) {
+        jdbcTemplate.update(INSERT_TOKEN_SQL, new MapSqlParameterSource()
+                .addValue("tokenHash", tokenHash)
+                .addValue("familyId", familyId)
+                .addValue("userId", userId)
+                .addValue("expiresAt", Timestamp.from(expiresAt)));
+    }
+
+    @Override
+    public Optional<StoredToken> find(String tokenHash) {
+        List<StoredToken> found = jdbcTemplate.query(FIND_SQL,
+                new MapSqlParameterSource("tokenHash", tokenHash),
+                (rs, rowNum) -> new StoredToken(
+                        rs.getObject("family_id", UUID.class),
+                        rs.getLong("user_id"),
+                        rs.getTimestamp("expires_at").toInstant(),
+                        rs.getTimestamp("family_expires_at").toInstant(),
+                        rs.getBoolean("used"),
+                        rs.getBoolean("revoked")));
+        return found.stream().findFirst();
+    }
+
+    @Override
+    public boolean markUsed(String tokenHash) {
+        return jdbcTemplate.update(MARK_USED_SQL, new MapSqlParameterSource("tokenHash", tokenHash)) == 1;
+    }
+
+    @Override
+    public void revokeFamily(UUID familyId) {
+        jdbcTemplate.update(REVOKE_FAMILY_SQL, new MapSqlParameterSource("familyId", familyId));
+    }
+
+    @Override
+    public int purgeExpired(Instant now) {
+        MapSqlParameterSource params = new MapSqlParameterSource("now", Timestamp.from(now));
+        int purged = jdbcTemplate.update(PURGE_TOKENS_SQL, params);
+        jdbcTemplate.update(PURGE_FAMILIES_SQL, params);
+        return purged;
+    }
+}
@@ -0,0 +1,17 @@
+package ru.ssau.todo.security;
+
+/**
+ * Проверенное содержимое токена.
+ * Роли — битовая маска из {@link RoleRegistry}; у refresh-токена ролей нет, {@code roleMask < 0}.
+ * {@code username} есть только если включено {@code jwt.include-username}.
+ * {@code jti} — случайный идентификатор токена для {@link TokenDenylist}; у токенов без него {@code NO_JTI}.
+ */
+public record JwtClaims(long userId, String username, long roleMask, long iat, long exp, long jti) {
+
+    public static final long NO_ROLES = -1;
+    public static final long NO_JTI = 0;
+
+    public boolean isAccessToken() {
+        return roleMask >= 0;
+    }
+}
@@ -0,0 +1,60 @@
+package ru.ssau.todo.security;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Потоковый разбор тела токена сразу в {@link JwtClaims},
+ * без промежуточной {@code Map<String, Object>} и упакованных чисел.
+ */
+public final class JwtClaimsParser {
+
+    private final JsonFactory factory;
+
+    public JwtClaimsParser(JsonFactory factory) {
+        this.factory = factory;
+    }
+
+    public JwtClaims parse(InputStream json) throws IOException {
+        long userId = -1;
+        String username = null;
+        long iat = 0;
+        long exp = -1;
+        long roleMask = JwtClaims.NO_ROLES;
+        long jti = JwtClaims.NO_JTI;
+
+        try (JsonParser parser = factory.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("payload is not a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "userId"   -> userId = parser.getLongValue();
+                    case "username" -> username = parser.getValueAsString();
+                    case "iat"      -> iat = parser.getLongValue();
+                    case "exp"      -> exp = parser.getLongValue();
+                    case "rm"       -> roleMask = parser.getLongValue();
+                    case "jti"      -> jti = parser.getLongValue();
+                    // Токены старого формата со списком ролей: считаем access-токеном без ролей
+                    case "roles"    -> {
+                        parser.skipChildren();
+                        roleMask = 0;
+                    }
+                    default         -> parser.skipChildren();
+                }
+            }
+        }
+
+        // Отсутствующий exp оставляем -1: такой токен будет отклонён как просроченный
+        if (userId < 0) {
+            throw new IOException("userId claim is missing");
+        }
+        return new JwtClaims(userId, username, roleMask, iat, exp, jti);
+    }
+}
@@ -0,0 +1,135 @@
+package ru.ssau.todo.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Подпись и проверка токенов HMAC-SHA256.
+ * Ключ читается один раз при старте, инициализированные {@link Mac} переиспользуются
+ * через пул (а не ThreadLocal — так пул не разрастается на виртуальных потоках).
+ * Работает с массивами байт напрямую, без промежуточных строк.
+ */
+@Component
+public class JwtSigner {
+
+    private static final String HMAC_SHA256    = "HmacSHA256";
+    private static final int    MIN_SECRET_LEN = 32;
+    private static final int    MAC_LENGTH     = 32;
+    // Base64url без паддинга для 32 байт подписи
+    private static final int    SIGNATURE_LENGTH = 43;
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private final SecretKeySpec key;
+    private final BlockingQueue<Engine> pool;
+
+    public JwtSigner(@Value("${jwt.secret:}") String secret) {
+        if (secret == null || secret.length() < MIN_SECRET_LEN) {
+            throw new IllegalStateException(
+                "JWT_SECRET environment variable is not set or shorter than 32 characters");
+        }
+        this.key  = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), HMAC_SHA256);
+        this.pool = new ArrayBlockingQueue<>(Runtime.getRuntime().availableProcessors() * 2);
+        // Проверяем ключ сразу, чтобы приложение не стартовало с нерабочим секретом
+        pool.offer(newEngine());
+    }
+
+    /**
+     * Возвращает токен вида {@code payload.signature}, где payload уже закодирован в Base64url.
+     */
+    public String sign(byte[] encodedPayload) {
+        byte[] token = new byte[encodedPayload.length + 1 + SIGNATURE_LENGTH];
+        System.arraycopy(encodedPayload, 0, token, 0, encodedPayload.length);
+        token[encodedPayload.length] = '.';
+
+        Engine engine = acquire();
+        try {
+            engine.compute(encodedPayload, 0, encodedPayload.length);
+            System.arraycopy(engine.signature, 0, token, encodedPayload.length + 1, SIGNATURE_LENGTH);
+        } finally {
+            release(engine);
+        }
+        return new String(token, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Проверяет подпись токена: байты {@code [0, payloadLength)} — тело,
+     * после точки — подпись в Base64url. Сравнение за константное время.
+     */
+    public boolean verify(byte[] token, int payloadLength) {
+        int signatureStart = payloadLength + 1;
+        if (token.length - signatureStart != SIGNATURE_LENGTH) {
+            return false;
+        }
+
+        Engine engine = acquire();
+        try {
+            engine.compute(token, 0, payloadLength);
+            int diff = 0;
+            for (int i = 0; i < SIGNATURE_LENGTH; i++) {
+                diff |= engine.signature[i] ^ token[signatureStart + i];
+            }
+            return diff == 0;
+        } finally {
+            release(engine);
+        }
+    }
+
+    // Свободные экземпляры в пуле — для тестов
+    int idleEngines() {
+        return pool.size();
+    }
+
+    int poolCapacity() {
+        return pool.size() + pool.remainingCapacity();
+    }
+
+    private Engine acquire() {
+        Engine engine = pool.poll();
+        return engine != null ? engine : newEngine();
+    }
+
+    // Если пул полон — лишний экземпляр просто достанется сборщику мусора
+    private void release(Engine engine) {
+        pool.offer(engine);
+    }
+
+    private Engine newEngine() {
+        try {
+            Mac mac = Mac.getInstance(HMAC_SHA256);
+            mac.init(key);
+            return new Engine(mac);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Invalid JWT signing key", e);
+        }
+    }
+
+    private static final class Engine {
+        private final Mac mac;
+        private final byte[] raw       = new byte[MAC_LENGTH];
+        private final byte[] signature = new byte[SIGNATURE_LENGTH];
+
+        private Engine(Mac mac) {
+            this.mac = mac;
+        }
+
+        private void compute(byte[] data, int offset, int length) {
+            try {
+                mac.update(data, offset, length);
+                mac.doFinal(raw, 0);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Failed to compute token signature", e);
+            }
+            ENCODER.encode(raw, signature);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package ru.ssau.todo.security;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import ru.ssau.todo.exception.HashingOverloadedException;
+import ru.ssau.todo.filter.DbAdmissionFilter;
+
+/**
+ * Хэширование и проверка паролей BCrypt на отдельном пуле по числу ядер.
+ * Один вызов при cost 10 — порядка 100 мс CPU, поэтому всплеск логинов не должен
+ * занимать все потоки Tomcat: одновременно считается не больше хэшей, чем потоков пула,
+ * очередь ограничена, а при переполнении сразу бросается {@link HashingOverloadedException} (503).
+ * Пока запрос ждёт хэш, его разрешение {@link DbAdmissionFilter} свободно для запросов к БД.
+ */
+@Component
+public class PasswordHasher {
+
+    private final PasswordEncoder passwordEncoder;
+    private final int cost;
+    private final long timeoutNanos;
+    private final Duration retryAfter;
+    private final ThreadPoolExecutor executor;
+
+    // Хэш для холостой проверки неизвестных пользователей: тот же cost, что у настоящих
+    private final String dummyHash;
+
+    private final Timer verifyTimer;
+    private final Timer encodeTimer;
+    private final Counter rejectedCounter;
+
+    public PasswordHasher(PasswordEncoder passwordEncoder,
+                          MeterRegistry meterRegistry,
+                          @Value("${auth.bcrypt.cost:10}") int cost,
+                          @Value("${auth.hashing.threads:0}") int threads,
+                          @Value("${auth.hashing.queue-capacity:64}") int queueCapacity,
+                          @Value("${auth.hashing.timeout:5s}") Duration timeout,
+                          @Value("${auth.hashing.retry-after:1s}") Duration retryAfter) {
+        this.passwordEncoder = passwordEncoder;
+        this.cost = cost;
+        this.timeoutNanos = timeout.toNanos();
+        this.retryAfter = retryAfter;
+
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread thread = new Thread(r, "password-hasher-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.dummyHash = passwordEncoder.encode("dummy-password-for-unknown-users");
+
+        Gauge.builder("auth.hashing.queue", executor.getQueue(), BlockingQueue::size)
+                .description("Password hashing tasks waiting for a worker")
+                .register(meterRegistry);
+        Gauge.builder("auth.hashing.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Password hashing workers busy right now")
+                .register(meterRegistry);
+        this.verifyTimer = Timer.builder("auth.password.hash")
+                .description("BCrypt time on a hashing worker")
+                .tag("operation", "verify")
+                .register(meterRegistry);
+        this.encodeTimer = Timer.builder("auth.password.hash")
+                .description("BCrypt time on a hashing worker")
+                .tag("operation", "encode")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("auth.hashing.rejected")
+                .description("Password hashing requests rejected because the queue was full")
+                .register(meterRegistry);
+    }
+
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return submit(() -> verifyTimer.record(() -> passwordEncoder.matches(rawPassword, encodedPassword)));
+    }
+
+    public String encode(CharSequence rawPassword) {
+        return submit(() -> encodeTimer.record(() -> passwordEncoder.encode(rawPassword)));
+    }
+
+    /**
+     * Холостая проверка для неизвестного пользователя — чтобы ответ занимал столько же,
+     * сколько при неверном пароле. Идёт через ту же очередь, что и настоящие проверки:
+     * при перегрузке 503 получают и известные, и неизвестные имена — отдельный
+     * лимит для холостых проверок выдавал бы по ответу, существует ли пользователь.
+     */
+    public void verifyDummy(CharSequence rawPassword) {
+        matches(rawPassword, dummyHash);
+    }
+
+    /**
+     * Хэш посчитан с другим cost, чем настроен сейчас ({@code auth.bcrypt.cost}) —
+     * после успешного входа пароль стоит перехэшировать.
+     */
+    public boolean needsRehash(String encodedPassword) {
+        // Формат BCrypt: $2a$10$<соль и хэш>
+        if (encodedPassword == null || encodedPassword.length() < 7
+                || encodedPassword.charAt(0) != '$' || encodedPassword.charAt(3) != '$') {
+            return false;
+        }
+        try {
+            return Integer.parseInt(encodedPassword.substring(4, 6)) != cost;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private <T> T submit(Callable<T> task) {
+        return DbAdmissionFilter.withoutPermit(() -> await(task));
+    }
+
+    private <T> T await(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            throw new HashingOverloadedException(retryAfter);
+        }
+        try {
+            return future.get(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            // Задача ещё в очереди — убираем, чтобы пул не считал хэш, который уже никто не ждёт
+            future.cancel(true);
+            executor.purge();
+            rejectedCounter.increment();
+            throw new HashingOverloadedException(retryAfter);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new HashingOverloadedException(retryAfter);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
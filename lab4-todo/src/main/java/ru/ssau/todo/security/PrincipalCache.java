@@ -0,0 +1,79 @@
+package ru.ssau.todo.security;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongFunction;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Component;
+
+/**
+ * Кэш пользователей для {@link ru.ssau.todo.filter.JwtFilter}: userId -> username и authorities.
+ * Без него каждый запрос с токеном делал {@code findById} в базу.
+ * Записи живут не дольше TTL; при удалении пользователя или смене его ролей
+ * запись сбрасывается явно через {@link #invalidate(long)}.
+ */
+@Component
+public class PrincipalCache {
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final long ttlNanos;
+    private final int maxSize;
+
+    public PrincipalCache(@Value("${security.principal-cache.ttl:5m}") Duration ttl,
+                          @Value("${security.principal-cache.max-size:10000}") int maxSize) {
+        this.ttlNanos = ttl.toNanos();
+        this.maxSize  = maxSize;
+    }
+
+    /**
+     * Возвращает пользователя из кэша или загружает его через {@code loader}.
+     * Если loader вернул null (пользователя нет), ничего не кэшируется.
+     */
+    public CachedPrincipal get(long userId, LongFunction<CachedPrincipal> loader) {
+        long now = System.nanoTime();
+        Entry entry = entries.get(userId);
+        if (entry != null && now - entry.loadedAt < ttlNanos) {
+            return entry.principal;
+        }
+
+        CachedPrincipal principal = loader.apply(userId);
+        if (principal == null) {
+            entries.remove(userId);
+            return null;
+        }
+        if (entries.size() >= maxSize) {
+            evict(now);
+        }
+        entries.put(userId, new Entry(principal, now));
+        return principal;
+    }
+
+    public void invalidate(long userId) {
+        entries.remove(userId);
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private void evict(long now) {
+        entries.values().removeIf(e -> now - e.loadedAt >= ttlNanos);
+        var it = entries.keySet().iterator();
+        while (entries.size() >= maxSize && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    public record CachedPrincipal(String username, Collection<? extends GrantedAuthority> authorities) {}
+
+    private record Entry(CachedPrincipal principal, long loadedAt) {}
+}
@@ -0,0 +1,32 @@
+package ru.ssau.todo.security;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Хранилище refresh-токенов. Ключ — хэш токена, сам токен нигде не хранится.
+ * Все операции, кроме очистки, — обращение по ключу, без просмотра остальных сессий.
+ * Реализация выбирается свойством {@code auth.refresh.store}: {@code jdbc} (по умолчанию) или {@code memory}.
+ */
+public interface RefreshTokenStore {
+
+    // Срок семейства задаётся один раз при входе и дальше не продлевается
+    void startFamily(UUID familyId, long userId, Instant expiresAt);
+
+    // Добавляет токен в семейство; срок токена не позже срока семейства
+    void addToken(String tokenHash, UUID familyId, long userId, Instant expiresAt);
+
+    Optional<StoredToken> find(String tokenHash);
+
+    // Атомарно помечает токен использованным; false — его уже использовали (или его нет)
+    boolean markUsed(String tokenHash);
+
+    void revokeFamily(UUID familyId);
+
+    // Удаляет истёкшие токены и семейства, возвращает число удалённых токенов
+    int purgeExpired(Instant now);
+
+    record StoredToken(UUID familyId, long userId, Instant expiresAt, Instant familyExpiresAt,
+                       boolean used, boolean familyRevoked) {}
+}
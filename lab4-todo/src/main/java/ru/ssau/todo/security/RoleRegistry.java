@@ -0,0 +1,158 @@
+package ru.ssau.todo.security;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import ru.ssau.todo.entity.Role;
+import ru.ssau.todo.repository.RoleRepository;
+
+/**
+ * Справочник ролей, загружаемый из {@link RoleRepository} при старте.
+ * В токене роли хранятся битовой маской: бит с номером {@code role.id}.
+ * Для каждой маски список authorities строится один раз и дальше отдаётся
+ * общим неизменяемым экземпляром — разбор ролей на запрос ничего не аллоцирует.
+ * Справочник перечитывается только после изменения таблицы ролей
+ * ({@link RoleRegistryInvalidationListener}) и не чаще раза в {@code auth.roles.reload-interval}.
+ */
+@Component
+public class RoleRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(RoleRegistry.class);
+
+    private static final String ROLE_PREFIX = "ROLE_";
+    // Бит 63 не используем: отрицательная маска означает «ролей в токене нет»
+    private static final int MAX_ROLE_ID = 62;
+
+    private final RoleRepository roleRepository;
+    private final long reloadIntervalNanos;
+
+    private volatile Snapshot snapshot = new Snapshot(new String[0], Map.of());
+    private volatile boolean stale = true;
+    private long lastReloadAt;
+    private boolean reloadAttempted;
+
+    public RoleRegistry(RoleRepository roleRepository,
+                        @Value("${auth.roles.reload-interval:5s}") Duration reloadInterval) {
+        this.roleRepository = roleRepository;
+        this.reloadIntervalNanos = reloadInterval.toNanos();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void reload() {
+        lastReloadAt = System.nanoTime();
+        reloadAttempted = true;
+        String[] namesByBit = new String[MAX_ROLE_ID + 1];
+        Map<String, Integer> bitsByName = new HashMap<>();
+        for (Role role : roleRepository.findAll()) {
+            long id = role.getId();
+            // Такой роли нет бита в маске: в токен она не попадёт, остальные роли работают
+            if (id < 0 || id > MAX_ROLE_ID) {
+                log.error("Role {} has id {} that does not fit into token role mask, ignoring it", role.getName(), id);
+                continue;
+            }
+            String name = stripPrefix(role.getName());
+            namesByBit[(int) id] = name;
+            bitsByName.put(name, (int) id);
+        }
+        snapshot = new Snapshot(namesByBit, bitsByName);
+        stale = false;
+    }
+
+    // Вызывается при изменении таблицы ролей; перезагрузка — при следующем обращении
+    public void markStale() {
+        stale = true;
+    }
+
+    public long toMask(Collection<Role> roles) {
+        Snapshot current = current();
+        long mask = 0;
+        for (Role role : roles) {
+            // Неизвестная роль — просто без бита; повторно справочник здесь не читаем
+            Integer bit = current.bitsByName.get(stripPrefix(role.getName()));
+            if (bit != null) {
+                mask |= 1L << bit;
+            }
+        }
+        return mask;
+    }
+
+    public List<GrantedAuthority> authorities(long mask) {
+        if (mask <= 0) {
+            return List.of();
+        }
+        Snapshot current = current();
+        List<GrantedAuthority> cached = current.authoritiesByMask.get(mask);
+        if (cached != null) {
+            return cached;
+        }
+        return current.authoritiesByMask.computeIfAbsent(mask, m -> {
+            List<GrantedAuthority> authorities = new ArrayList<>(Long.bitCount(m));
+            for (String name : current.names(m)) {
+                authorities.add(new SimpleGrantedAuthority(ROLE_PREFIX + name));
+            }
+            return List.copyOf(authorities);
+        });
+    }
+
+    // Имена ролей без префикса ROLE_ — в таком виде их видит клиент
+    public List<String> names(long mask) {
+        return current().names(mask);
+    }
+
+    private Snapshot current() {
+        if (stale) {
+            reloadIfDue();
+        }
+        return snapshot;
+    }
+
+    // Пока справочник не перечитан, запросы обслуживаются по старому снимку:
+    // ошибка чтения не превращается в 500 на каждый запрос, а повтор — не чаще интервала
+    private synchronized void reloadIfDue() {
+        if (!stale || reloadAttempted && System.nanoTime() - lastReloadAt < reloadIntervalNanos) {
+            return;
+        }
+        try {
+            reload();
+        } catch (RuntimeException e) {
+            log.warn("Failed to reload roles, keeping the previous snapshot", e);
+        }
+    }
+
+    private static String stripPrefix(String name) {
+        return name.startsWith(ROLE_PREFIX) ? name.substring(ROLE_PREFIX.length()) : name;
+    }
+
+    private record Snapshot(String[] namesByBit,
+                            Map<String, Integer> bitsByName,
+                            Map<Long, List<GrantedAuthority>> authoritiesByMask) {
+
+        Snapshot(String[] namesByBit, Map<String, Integer> bitsByName) {
+            this(namesByBit, Map.copyOf(bitsByName), new ConcurrentHashMap<>());
+        }
+
+        List<String> names(long mask) {
+            List<String> names = new ArrayList<>(Long.bitCount(mask));
+            for (int bit = 0; bit < namesByBit.length; bit++) {
+                if ((mask & (1L << bit)) != 0 && namesByBit[bit] != null) {
+                    names.add(namesByBit[bit]);
+                }
+            }
+            return names;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package ru.ssau.todo.security;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import ru.ssau.todo.entity.Role;
+
+// Любое изменение таблицы ролей помечает справочник ролей устаревшим.
+// Слушатель создаётся вместе с EntityManagerFactory, а RoleRegistry зависит от репозитория,
+// поэтому справочник получаем лениво — иначе получается цикл при старте
+@Component
+public class RoleRegistryInvalidationListener {
+
+    private final ObjectProvider<RoleRegistry> roleRegistry;
+
+    public RoleRegistryInvalidationListener(ObjectProvider<RoleRegistry> roleRegistry) {
+        this.roleRegistry = roleRegistry;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onRoleChanged(Role role) {
+        roleRegistry.getObject().markStale();
+    }
+}
@@ -0,0 +1,93 @@
+package ru.ssau.todo.security;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ограниченный кэш уже проверенных токенов.
+ * Ключ — подпись токена, запись живёт до момента {@code exp} самого токена,
+ * поэтому повторный токен аутентифицируется одним поиском в хэш-таблице
+ * без пересчёта HMAC и разбора JSON.
+ */
+public class TokenCache<V> {
+
+    private final Map<String, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final int maxSize;
+
+    private final LongAdder hits      = new LongAdder();
+    private final LongAdder misses    = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public TokenCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Возвращает закэшированное значение, если подпись известна, тело токена совпадает
+     * с проверенным ранее и срок действия ещё не истёк.
+     */
+    public V get(String signature, String encodedPayload, long nowEpochSecond) {
+        Entry<V> entry = entries.get(signature);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (entry.expiresAt <= nowEpochSecond) {
+            if (entries.remove(signature, entry)) {
+                evictions.increment();
+            }
+            misses.increment();
+            return null;
+        }
+        // Подпись без совпадающего тела — это подделка, а не попадание в кэш
+        if (!entry.encodedPayload.equals(encodedPayload)) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.value;
+    }
+
+    public void put(String signature, String encodedPayload, V value, long expiresAt, long nowEpochSecond) {
+        if (expiresAt <= nowEpochSecond) {
+            return;
+        }
+        if (entries.size() >= maxSize) {
+            evictExpired(nowEpochSecond);
+            if (entries.size() >= maxSize) {
+                evictOne();
+            }
+        }
+        entries.put(signature, new Entry<>(encodedPayload, value, expiresAt));
+    }
+
+    public void evictExpired(long nowEpochSecond) {
+        entries.entrySet().removeIf(e -> {
+            boolean expired = e.getValue().expiresAt <= nowEpochSecond;
+            if (expired) evictions.increment();
+            return expired;
+        });
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    // Кэш переполнен живыми токенами — вытесняем первую попавшуюся запись
+    private void evictOne() {
+        var it = entries.keySet().iterator();
+        if (it.hasNext()) {
+            it.next();
+            it.remove();
+            evictions.increment();
+        }
+    }
+
+    public int size()          { return entries.size(); }
+    public long getHits()      { return hits.sum(); }
+    public long getMisses()    { return misses.sum(); }
+    public long getEvictions() { return evictions.sum(); }
+
+    private record Entry<V>(String encodedPayload, V value, long expiresAt) {}
+}
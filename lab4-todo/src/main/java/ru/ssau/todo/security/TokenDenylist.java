@@ -0,0 +1,148 @@
+package ru.ssau.todo.security;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.sql.init.dependency.DependsOnDatabaseInitialization;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Отозванные access-токены по {@code jti}. Проверка в JwtFilter идёт без базы:
+ * сначала фильтр Блума (почти всегда отвечает «нет» за несколько чтений памяти),
+ * и только на «возможно» — точное множество. Таблица {@code revoked_access_token}
+ * нужна, чтобы отзыв пережил перезапуск: при старте живые строки читаются в память.
+ *
+ * <p>Из фильтра Блума удалить нельзя, поэтому очистка просроченных записей
+ * собирает его заново по точному множеству. Отзыв и пересборка идут под одной
+ * блокировкой, проверка — без блокировок: добавленный jti не может потеряться.
+ * Отзыв, сделанный на другом экземпляре приложения, виден здесь только после перезапуска.
+ */
+@Component
+@DependsOnDatabaseInitialization
+public class TokenDenylist {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenDenylist.class);
+
+    private static final String INSERT_SQL =
+            "INSERT INTO revoked_access_token (jti, user_id, expires_at) VALUES (:jti, :userId, :expiresAt)";
+    private static final String LOAD_SQL =
+            "SELECT jti, expires_at FROM revoked_access_token WHERE expires_at > :now";
+    private static final String PURGE_SQL =
+            "DELETE FROM revoked_access_token WHERE expires_at <= :now";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final long expectedSize;
+    private final double falsePositiveRate;
+
+    // jti → exp токена, эпоха в секундах
+    private final Map<Long, Long> revoked = new ConcurrentHashMap<>();
+    private volatile BloomBits filter;
+
+    private final Counter clear;
+    private final Counter denied;
+    private final Counter falsePositive;
+
+    public TokenDenylist(NamedParameterJdbcTemplate jdbcTemplate,
+                         MeterRegistry meterRegistry,
+                         @Value("${auth.denylist.expected-size:100000}") long expectedSize,
+                         @Value("${auth.denylist.false-positive-rate:0.001}") double falsePositiveRate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.expectedSize = expectedSize;
+        this.falsePositiveRate = falsePositiveRate;
+        this.filter = new BloomBits(expectedSize, falsePositiveRate);
+
+        // Доля ложных срабатываний фильтра — false_positive / (false_positive + clear)
+        this.clear = Counter.builder("auth.denylist.checks").tag("result", "clear")
+                .register(meterRegistry);
+        this.denied = Counter.builder("auth.denylist.checks").tag("result", "revoked")
+                .register(meterRegistry);
+        this.falsePositive = Counter.builder("auth.denylist.checks").tag("result", "false_positive")
+                .register(meterRegistry);
+        Gauge.builder("auth.denylist.size", revoked, Map::size)
+                .register(meterRegistry);
+        Gauge.builder("auth.denylist.expected_fpp", this, d -> d.filter.expectedFalsePositiveRate())
+                .description("False positive probability estimated from the share of set bits")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public synchronized void load() {
+        jdbcTemplate.query(LOAD_SQL, new MapSqlParameterSource("now", Timestamp.from(Instant.now())), rs -> {
+            revoked.put(rs.getLong("jti"), rs.getTimestamp("expires_at").toInstant().getEpochSecond());
+        });
+        rebuild();
+        log.info("Token denylist loaded: {} revoked tokens", revoked.size());
+    }
+
+    public boolean isRevoked(long jti) {
+        if (jti == JwtClaims.NO_JTI) {
+            return false;
+        }
+        if (!filter.mightContain(BloomBits.mix(jti))) {
+            clear.increment();
+            return false;
+        }
+        if (revoked.containsKey(jti)) {
+            denied.increment();
+            return true;
+        }
+        falsePositive.increment();
+        return false;
+    }
+
+    // Токены без jti (выпущенные до его появления) отозвать нельзя — они доживут до exp
+    public synchronized void revoke(JwtClaims claims) {
+        if (claims.jti() == JwtClaims.NO_JTI || revoked.containsKey(claims.jti())) {
+            return;
+        }
+        try {
+            jdbcTemplate.update(INSERT_SQL, new MapSqlParameterSource()
+                    .addValue("jti", claims.jti())
+                    .addValue("userId", claims.userId())
+                    .addValue("expiresAt", Timestamp.from(Instant.ofEpochSecond(claims.exp()))));
+        } catch (DuplicateKeyException e) {
+            // Уже отозван на другом экземпляре — достаточно запомнить у себя
+        }
+        revoked.put(claims.jti(), claims.exp());
+        filter.add(BloomBits.mix(claims.jti()));
+    }
+
+    @Scheduled(fixedDelayString = "${auth.denylist.sweep-interval:5m}")
+    public void purgeExpired() {
+        Instant now = Instant.now();
+        synchronized (this) {
+            long nowSeconds = now.getEpochSecond();
+            if (revoked.values().removeIf(exp -> exp <= nowSeconds)) {
+                rebuild();
+            }
+        }
+        jdbcTemplate.update(PURGE_SQL, new MapSqlParameterSource("now", Timestamp.from(now)));
+    }
+
+    public int size() {
+        return revoked.size();
+    }
+
+    // Вызывается только под блокировкой; размер с запасом, чтобы до следующей пересборки хватило места
+    private void rebuild() {
+        BloomBits next = new BloomBits(Math.max(expectedSize, 2L * revoked.size()), falsePositiveRate);
+        for (Long jti : revoked.keySet()) {
+            next.add(BloomBits.mix(jti));
+        }
+        filter = next;
+    }
+}
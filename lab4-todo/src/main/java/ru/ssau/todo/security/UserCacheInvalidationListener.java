@@ -0,0 +1,27 @@
+package ru.ssau.todo.security;
+
+import org.springframework.stereotype.Component;
+
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import ru.ssau.todo.entity.User;
+
+// Сбрасывает закэшированного пользователя при изменении или удалении через JPA.
+// Смена одних только ролей @PostUpdate не даёт — её ловит UserRolesInvalidationListener
+@Component
+public class UserCacheInvalidationListener {
+
+    private final PrincipalCache principalCache;
+
+    public UserCacheInvalidationListener(PrincipalCache principalCache) {
+        this.principalCache = principalCache;
+    }
+
+    @PostUpdate
+    @PostRemove
+    public void onUserChanged(User user) {
+        if (user.getId() != null) {
+            principalCache.invalidate(user.getId());
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package ru.ssau.todo.security;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.spi.AbstractCollectionEvent;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCollectionRecreateEvent;
+import org.hibernate.event.spi.PostCollectionRecreateEventListener;
+import org.hibernate.event.spi.PostCollectionRemoveEvent;
+import org.hibernate.event.spi.PostCollectionRemoveEventListener;
+import org.hibernate.event.spi.PostCollectionUpdateEvent;
+import org.hibernate.event.spi.PostCollectionUpdateEventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jakarta.persistence.EntityManagerFactory;
+import ru.ssau.todo.entity.User;
+
+// Смена ролей меняет только user_roles: @PostUpdate у User при этом не срабатывает.
+// Ловим запись коллекции User.roles в Hibernate и сбрасываем пользователя в PrincipalCache
+@Component
+public class UserRolesInvalidationListener implements PostCollectionUpdateEventListener,
+        PostCollectionRecreateEventListener, PostCollectionRemoveEventListener {
+
+    private static final String ROLES = User.class.getName() + ".roles";
+
+    private final PrincipalCache principalCache;
+
+    public UserRolesInvalidationListener(PrincipalCache principalCache, EntityManagerFactory entityManagerFactory) {
+        this.principalCache = principalCache;
+        var registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getEventListenerRegistry();
+        registry.appendListeners(EventType.POST_COLLECTION_UPDATE, this);
+        registry.appendListeners(EventType.POST_COLLECTION_RECREATE, this);
+        registry.appendListeners(EventType.POST_COLLECTION_REMOVE, this);
+    }
+
+    @Override
+    public void onPostUpdateCollection(PostCollectionUpdateEvent event) {
+        onRolesChanged(event);
+    }
+
+    @Override
+    public void onPostRecreateCollection(PostCollectionRecreateEvent event) {
+        onRolesChanged(event);
+    }
+
+    @Override
+    public void onPostRemoveCollection(PostCollectionRemoveEvent event) {
+        onRolesChanged(event);
+    }
+
+    private void onRolesChanged(AbstractCollectionEvent event) {
+        if (!ROLES.equals(event.getCollection().getRole())
+                || !(event.getAffectedOwnerIdOrNull() instanceof Long userId)) {
+            return;
+        }
+        principalCache.invalidate(userId);
+        // Между flush и коммитом другой запрос ещё может закэшировать старые роли — сбрасываем и после коммита
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    principalCache.invalidate(userId);
+                }
+            });
+        }
+    }
+}
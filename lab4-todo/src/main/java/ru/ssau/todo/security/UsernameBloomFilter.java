@@ -0,0 +1,105 @@
+package ru.ssau.todo.security;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import ru.ssau.todo.repository.UserRepository;
+
+/**
+ * Фильтр Блума по именам зарегистрированных пользователей.
+ * «Нет» — точно нет такого пользователя, в базу за ним не ходим; «возможно» — проверяем в базе.
+ *
+ * <p>Фильтр только пополняется и никогда не пересобирается на ходу, поэтому ложных «нет»
+ * не бывает: имя добавляется в {@code register} ещё до коммита, а при старте
+ * в тот же массив бит дописываются все имена из базы. Удалённые пользователи остаются
+ * в фильтре — это лишь ложное «возможно». Если пользователей больше, чем
+ * {@code auth.username-filter.expected-users}, растёт только доля ложных срабатываний
+ * (метрика {@code auth.username_filter.expected_fpp}).
+ */
+@Component
+public class UsernameBloomFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(UsernameBloomFilter.class);
+
+    private final UserRepository userRepository;
+
+    private final BloomBits bits;
+    private final AtomicLong added = new AtomicLong();
+
+    // До загрузки имён из базы фильтр ничего не отсекает
+    private volatile boolean loaded;
+
+    private final Counter absent;
+    private final Counter present;
+    private final Counter falsePositive;
+
+    public UsernameBloomFilter(UserRepository userRepository,
+                               MeterRegistry meterRegistry,
+                               @Value("${auth.username-filter.expected-users:1000000}") long expectedUsers,
+                               @Value("${auth.username-filter.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.userRepository = userRepository;
+        this.bits = new BloomBits(expectedUsers, falsePositiveRate);
+
+        // Доля отсечённых фильтром логинов — absent / (absent + present);
+        // доля ложных срабатываний среди неизвестных имён — false_positive / (false_positive + absent)
+        this.absent = Counter.builder("auth.username_filter.lookups").tag("result", "absent")
+                .register(meterRegistry);
+        this.present = Counter.builder("auth.username_filter.lookups").tag("result", "present")
+                .register(meterRegistry);
+        this.falsePositive = Counter.builder("auth.username_filter.lookups").tag("result", "false_positive")
+                .register(meterRegistry);
+        Gauge.builder("auth.username_filter.expected_fpp", this, UsernameBloomFilter::expectedFalsePositiveRate)
+                .description("False positive probability estimated from the share of set bits")
+                .register(meterRegistry);
+        Gauge.builder("auth.username_filter.size", added, AtomicLong::get)
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void load() {
+        try (Stream<String> usernames = userRepository.streamAllUsernames()) {
+            usernames.forEach(this::add);
+        }
+        loaded = true;
+        log.info("Username filter loaded: {} names, {} bits, {} hashes",
+                added.get(), bits.bitCount(), bits.hashCount());
+    }
+
+    public void add(String username) {
+        bits.add(BloomBits.hash(username));
+        added.incrementAndGet();
+    }
+
+    public boolean mightContain(String username) {
+        if (!loaded || username == null) {
+            return true;
+        }
+        if (!bits.mightContain(BloomBits.hash(username))) {
+            absent.increment();
+            return false;
+        }
+        present.increment();
+        return true;
+    }
+
+    // Фильтр сказал «возможно», а в базе пользователя нет
+    public void recordFalsePositive() {
+        falsePositive.increment();
+    }
+
+    public double expectedFalsePositiveRate() {
+        return bits.expectedFalsePositiveRate();
+    }
+}
@@ -1,62 +1,164 @@
 package ru.ssau.todo.service;
 
-import java.util.List;
-import java.util.stream.Collectors;
-
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
 import ru.ssau.todo.dto.AuthUserDto;
 import ru.ssau.todo.dto.TokenResponse;
 import ru.ssau.todo.entity.User;
+import ru.ssau.todo.exception.HashingOverloadedException;
+import ru.ssau.todo.exception.TokenException;
+import ru.ssau.todo.exception.TokenExpiredException;
+import ru.ssau.todo.exception.TokenReuseException;
 import ru.ssau.todo.repository.UserRepository;
+import ru.ssau.todo.security.PasswordHasher;
+import ru.ssau.todo.security.RoleRegistry;
+import ru.ssau.todo.security.TokenDenylist;
+import ru.ssau.todo.security.UsernameBloomFilter;
 
 @Service
 public class AuthService {
 
+    private static final Logger log = LoggerFactory.getLogger(AuthService.class);
+
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHasher passwordHasher;
     private final TokenService tokenService;
+    private final RefreshTokenService refreshTokenService;
+    private final TokenDenylist tokenDenylist;
+    private final RoleRegistry roleRegistry;
+    private final UsernameBloomFilter usernameFilter;
+
+    // Набор исходов фиксирован — счётчики регистрируются один раз, без имён пользователей в тегах
+    private final Counter loginSuccess;
+    private final Counter loginBadPassword;
+    private final Counter loginUnknownUser;
+    private final Counter refreshSuccess;
+    private final Counter refreshUnknownUser;
+    private final Counter refreshExpired;
+    private final Counter refreshInvalid;
+    private final Counter refreshReused;
 
     public AuthService(UserRepository userRepository,
-                       PasswordEncoder passwordEncoder,
-                       TokenService tokenService) {
+                       PasswordHasher passwordHasher,
+                       TokenService tokenService,
+                       RefreshTokenService refreshTokenService,
+                       TokenDenylist tokenDenylist,
+                       RoleRegistry roleRegistry,
+                       UsernameBloomFilter usernameFilter,
+                       MeterRegistry meterRegistry) {
         this.userRepository  = userRepository;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordHasher  = passwordHasher;
         this.tokenService    = tokenService;
+        this.refreshTokenService = refreshTokenService;
+        this.tokenDenylist   = tokenDenylist;
+        this.roleRegistry    = roleRegistry;
+        this.usernameFilter  = usernameFilter;
+        this.loginSuccess       = counter(meterRegistry, "auth.login", "success");
+        this.loginBadPassword   = counter(meterRegistry, "auth.login", "bad_password");
+        this.loginUnknownUser   = counter(meterRegistry, "auth.login", "unknown_user");
+        this.refreshSuccess     = counter(meterRegistry, "auth.refresh", "success");
+        this.refreshUnknownUser = counter(meterRegistry, "auth.refresh", "unknown_user");
+        this.refreshExpired     = counter(meterRegistry, "auth.refresh", "expired");
+        this.refreshInvalid     = counter(meterRegistry, "auth.refresh", "invalid");
+        this.refreshReused      = counter(meterRegistry, "auth.refresh", "reused");
     }
 
     public TokenResponse login(String username, String password) {
-        User user = userRepository.findByUsername(username).orElse(null);
-        if (user == null || !passwordEncoder.matches(password, user.getPassword())) {
+        // Неизвестное имя отсекаем без запроса в БД, но BCrypt всё равно считаем —
+        // по времени ответа нельзя понять, существует ли пользователь
+        if (!usernameFilter.mightContain(username)) {
+            passwordHasher.verifyDummy(password);
+            loginUnknownUser.increment();
             return null;  // null = неверные учётные данные, контроллер вернёт 401
         }
+        User user = userRepository.findByUsername(username).orElse(null);
+        if (user == null) {
+            usernameFilter.recordFalsePositive();
+            passwordHasher.verifyDummy(password);
+            loginUnknownUser.increment();
+            return null;
+        }
+        // BCrypt считается в пуле PasswordHasher; при переполнении — HashingOverloadedException (503)
+        if (!passwordHasher.matches(password, user.getPassword())) {
+            loginBadPassword.increment();
+            return null;
+        }
+        loginSuccess.increment();
+        rehashIfNeeded(user, password);
 
-        List<String> roles = extractRoles(user);
-        String accessToken  = tokenService.generateToken(tokenService.createAccessPayload(user.getId(), roles));
-        String refreshToken = tokenService.generateToken(tokenService.createRefreshPayload(user.getId()));
+        long roleMask = roleRegistry.toMask(user.getRoles());
+        String accessToken  = tokenService.generateToken(tokenService.createAccessPayload(user.getId(), user.getUsername(), roleMask));
+        String refreshToken = refreshTokenService.issue(user.getId());
         return new TokenResponse(accessToken, refreshToken);
     }
 
     public TokenResponse refresh(String refreshToken) {
-        // validateToken бросит TokenExpiredException / InvalidTokenException при ошибке
-        var payload = tokenService.validateToken(refreshToken);
-
-        // Refresh Token не должен содержать roles — это признак Access Token
-        if (payload.containsKey("roles")) {
-            return null;
+        // Старый токен больше не действует: rotate выдаёт новый или бросит
+        // TokenExpiredException / InvalidTokenException / TokenReuseException
+        RefreshTokenService.Rotation rotation;
+        try {
+            rotation = refreshTokenService.rotate(refreshToken);
+        } catch (TokenException e) {
+            if (e instanceof TokenReuseException) {
+                refreshReused.increment();
+            } else if (e instanceof TokenExpiredException) {
+                refreshExpired.increment();
+            } else {
+                refreshInvalid.increment();
+            }
+            throw e;
         }
 
-        Long userId = ((Number) payload.get("userId")).longValue();
-        User user = userRepository.findById(userId).orElse(null);
+        User user = userRepository.findById(rotation.userId()).orElse(null);
         if (user == null) {
+            refreshUnknownUser.increment();
             return null;
         }
+        refreshSuccess.increment();
 
-        List<String> roles = extractRoles(user);
+        long roleMask = roleRegistry.toMask(user.getRoles());
         String newAccessToken = tokenService.generateToken(
-                tokenService.createAccessPayload(user.getId(), roles));
-        return new TokenResponse(newAccessToken, refreshToken);
+                tokenService.createAccessPayload(user.getId(), user.getUsername(), roleMask));
+        return new TokenResponse(newAccessToken, rotation.refreshToken());
+    }
+
+    // Отзывает сессию refresh-токена и сам access-токен, если он ещё действует
+    public void logout(String refreshToken, String accessToken) {
+        if (refreshToken != null) {
+            refreshTokenService.revoke(refreshToken);
+        }
+        if (accessToken != null) {
+            try {
+                tokenDenylist.revoke(tokenService.validateToken(accessToken));
+            } catch (TokenException e) {
+                // Просроченный или поддельный токен отзывать незачем
+            }
+        }
+    }
+
+    // Пароль верный, но хэш посчитан со старым cost — пересчитываем с текущим.
+    // Если пул занят, вход не проваливаем: перехэшируем при следующем входе
+    private void rehashIfNeeded(User user, String password) {
+        if (!passwordHasher.needsRehash(user.getPassword())) {
+            return;
+        }
+        try {
+            user.setPassword(passwordHasher.encode(password));
+            userRepository.save(user);
+        } catch (HashingOverloadedException e) {
+            log.debug("Rehash of user {} postponed: hashing pool is busy", user.getId());
+        }
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String name, String outcome) {
+        return Counter.builder(name)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
     }
 
     public AuthUserDto getCurrentUser(String username) {
@@ -65,14 +167,7 @@ public class AuthService {
 
         AuthUserDto dto = new AuthUserDto();
         dto.setUsername(user.getUsername());
-        dto.setRoles(extractRoles(user));
+        dto.setRoles(roleRegistry.names(roleRegistry.toMask(user.getRoles())));
         return dto;
     }
-
-    // Вынесено в отдельный метод — было продублировано в login и refresh
-    private List<String> extractRoles(User user) {
-        return user.getRoles().stream()
-                .map(role -> role.getName().replace("ROLE_", ""))
-                .collect(Collectors.toList());
-    }
 }
\ No newline at end of file
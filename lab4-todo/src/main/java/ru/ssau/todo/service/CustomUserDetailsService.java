@@ -2,14 +2,10 @@ package ru.ssau.todo.service;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
-import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -18,20 +14,29 @@ import ru.ssau.todo.entity.Role;
 import ru.ssau.todo.entity.User;
 import ru.ssau.todo.repository.RoleRepository;
 import ru.ssau.todo.repository.UserRepository;
+import ru.ssau.todo.security.PasswordHasher;
+import ru.ssau.todo.security.RoleRegistry;
+import ru.ssau.todo.security.UsernameBloomFilter;
 
 @Service
 public class CustomUserDetailsService implements UserDetailsService {
 
     private final UserRepository userRepository;
     private final RoleRepository roleRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHasher passwordHasher;
+    private final RoleRegistry roleRegistry;
+    private final UsernameBloomFilter usernameFilter;
 
     public CustomUserDetailsService(UserRepository userRepository,
                                     RoleRepository roleRepository,
-                                    PasswordEncoder passwordEncoder) {
+                                    PasswordHasher passwordHasher,
+                                    RoleRegistry roleRegistry,
+                                    UsernameBloomFilter usernameFilter) {
         this.userRepository = userRepository;
         this.roleRepository = roleRepository;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordHasher = passwordHasher;
+        this.roleRegistry = roleRegistry;
+        this.usernameFilter = usernameFilter;
     }
 
     @Override
@@ -40,20 +45,17 @@ public class CustomUserDetailsService implements UserDetailsService {
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
 
-        // ИСПРАВЛЕНО: роли в БД уже хранятся с префиксом ROLE_ (например ROLE_USER),
-        // поэтому НЕ добавляем "ROLE_" ещё раз — иначе получалось ROLE_ROLE_USER
-        List<GrantedAuthority> authorities = user.getRoles().stream()
-                .map(role -> new SimpleGrantedAuthority(role.getName()))
-                .collect(Collectors.toList());
-
+        // Роли в БД хранятся с префиксом ROLE_; RoleRegistry отдаёт общие authorities
+        // без повторного префикса (раньше получалось ROLE_ROLE_USER)
         return new org.springframework.security.core.userdetails.User(
                 user.getUsername(),
                 user.getPassword(),
-                authorities
+                roleRegistry.authorities(roleRegistry.toMask(user.getRoles()))
         );
     }
 
-    @Transactional
+    // Без общей транзакции: она держала бы соединение, пока пароль ждёт в очереди BCrypt.
+    // Одновременную регистрацию того же имени отсечёт уникальный индекс users.username
     public UserDto register(UserDto dto) {
         if (userRepository.findByUsername(dto.getUsername()).isPresent()) {
             throw new IllegalArgumentException("User already exists: " + dto.getUsername());
@@ -61,7 +63,7 @@ public class CustomUserDetailsService implements UserDetailsService {
 
         User user = new User();
         user.setUsername(dto.getUsername());
-        user.setPassword(passwordEncoder.encode(dto.getPassword()));
+        user.setPassword(passwordHasher.encode(dto.getPassword()));
 
         // Назначение роли: admin -> ROLE_ADMIN, иначе -> ROLE_USER
         String roleName = "admin".equalsIgnoreCase(dto.getUsername()) ? "ROLE_ADMIN" : "ROLE_USER";
@@ -69,6 +71,8 @@ public class CustomUserDetailsService implements UserDetailsService {
                 .orElseThrow(() -> new IllegalStateException("Role not found: " + roleName));
         user.setRoles(new ArrayList<>(List.of(role)));
 
+        // В фильтр — до сохранения: лишнее имя при ошибке безвредно, а пропущенное не даст войти
+        usernameFilter.add(user.getUsername());
         User saved = userRepository.save(user);
 
         UserDto result = new UserDto();
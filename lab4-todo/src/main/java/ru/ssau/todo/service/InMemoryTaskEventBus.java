@@ -0,0 +1,39 @@
+package ru.ssau.todo.service;
+
+import java.util.List;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import ru.ssau.todo.dto.TaskEvent;
+
+/**
+ * События внутри процесса — для одного экземпляра приложения.
+ * Раздаются после коммита: откатанные изменения подписчики не увидят.
+ */
+@Component
+@ConditionalOnProperty(name = "tasks.events.bus", havingValue = "memory")
+public class InMemoryTaskEventBus implements TaskEventBus {
+
+    private final TaskEventHub hub;
+
+    public InMemoryTaskEventBus(TaskEventHub hub) {
+        this.hub = hub;
+    }
+
+    @Override
+    public void publish(List<TaskEvent> events) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            events.forEach(hub::dispatch);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                events.forEach(hub::dispatch);
+            }
+        });
+    }
+}
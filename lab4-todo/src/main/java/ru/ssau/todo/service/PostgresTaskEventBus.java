@@ -0,0 +1,169 @@
+package ru.ssau.todo.service;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import ru.ssau.todo.dto.TaskEvent;
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * События через PostgreSQL LISTEN/NOTIFY — доходят до всех экземпляров приложения.
+ * {@code pg_notify} выполняется в транзакции сервиса, и база доставляет уведомление
+ * только после коммита. Каждый экземпляр слушает канал одним отдельным соединением
+ * (не из пула Hikari) в одном потоке и передаёт события в {@link TaskEventHub}.
+ *
+ * <p>Пока соединение восстанавливается, уведомления теряются, поэтому после
+ * переподключения все подписчики получают {@code resync}.
+ */
+@Component
+@ConditionalOnProperty(name = "tasks.events.bus", havingValue = "postgres", matchIfMissing = true)
+public class PostgresTaskEventBus implements TaskEventBus {
+
+    private static final Logger log = LoggerFactory.getLogger(PostgresTaskEventBus.class);
+
+    private static final String CHANNEL = "task_events";
+    private static final String NOTIFY_SQL = "SELECT pg_notify('" + CHANNEL + "', :payload)";
+    // Предел payload у NOTIFY — 8000 байт; события пакета режем на массивы поменьше
+    private static final int MAX_PAYLOAD_BYTES = 7500;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TaskEventHub hub;
+    private final JsonMapper jsonMapper;
+    private final String url;
+    private final String username;
+    private final String password;
+    private final Duration reconnectDelay;
+
+    private volatile boolean running;
+    private Thread listener;
+
+    public PostgresTaskEventBus(NamedParameterJdbcTemplate jdbcTemplate,
+                                TaskEventHub hub,
+                                JsonMapper jsonMapper,
+                                @Value("${spring.datasource.url}") String url,
+                                @Value("${spring.datasource.username}") String username,
+                                @Value("${spring.datasource.password}") String password,
+                                @Value("${tasks.events.reconnect-delay:5s}") Duration reconnectDelay) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.hub = hub;
+        this.jsonMapper = jsonMapper;
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.reconnectDelay = reconnectDelay;
+    }
+
+    @Override
+    public void publish(List<TaskEvent> events) {
+        for (String payload : payloads(events)) {
+            jdbcTemplate.query(NOTIFY_SQL, new MapSqlParameterSource("payload", payload), rs -> {});
+        }
+    }
+
+    // JSON-массивы событий, каждый не длиннее MAX_PAYLOAD_BYTES
+    List<String> payloads(List<TaskEvent> events) {
+        List<String> payloads = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        int currentBytes = 0;
+        for (TaskEvent event : events) {
+            String json = jsonMapper.writeValueAsString(event);
+            int bytes = json.getBytes(StandardCharsets.UTF_8).length;
+            if (current.length() > 0 && currentBytes + bytes + 2 > MAX_PAYLOAD_BYTES) {
+                payloads.add(current.append(']').toString());
+                current.setLength(0);
+            }
+            if (current.length() == 0) {
+                current.append('[');
+                currentBytes = 1;
+            } else {
+                current.append(',');
+                currentBytes++;
+            }
+            current.append(json);
+            currentBytes += bytes;
+        }
+        if (current.length() > 0) {
+            payloads.add(current.append(']').toString());
+        }
+        return payloads;
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        listener = new Thread(this::listen, "task-events-listener");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        listener.interrupt();
+    }
+
+    private void listen() {
+        boolean reconnect = false;
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(url, username, password)) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                if (reconnect) {
+                    hub.resyncAll();
+                }
+                log.info("Listening for task events on channel {}", CHANNEL);
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    // Ждёт уведомлений до секунды, затем проверяет флаг остановки
+                    PGNotification[] notifications = pgConnection.getNotifications(1000);
+                    if (notifications == null) {
+                        continue;
+                    }
+                    for (PGNotification notification : notifications) {
+                        dispatch(notification.getParameter());
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Task events listener lost its connection, retrying in {}", reconnectDelay, e);
+                reconnect = true;
+                try {
+                    Thread.sleep(reconnectDelay.toMillis());
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void dispatch(String payload) {
+        try {
+            for (TaskEvent event : jsonMapper.readValue(payload, TaskEvent[].class)) {
+                hub.dispatch(event);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Skipping malformed task event payload", e);
+        }
+    }
+}
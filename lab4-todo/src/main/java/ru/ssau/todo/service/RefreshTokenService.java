@@ -0,0 +1,118 @@
+package ru.ssau.todo.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import ru.ssau.todo.exception.InvalidTokenException;
+import ru.ssau.todo.exception.TokenExpiredException;
+import ru.ssau.todo.exception.TokenReuseException;
+import ru.ssau.todo.security.RefreshTokenStore;
+import ru.ssau.todo.security.RefreshTokenStore.StoredToken;
+
+/**
+ * Refresh-токены — случайные непрозрачные строки, в хранилище лежит только их SHA-256.
+ * Каждое использование выдаёт новый токен той же сессии (семейства), старый помечается
+ * использованным. Повторное предъявление использованного токена значит, что его кто-то
+ * скопировал: отзывается всё семейство, и ни вор, ни владелец дальше продлить сессию не смогут.
+ * Срок семейства фиксируется при входе: новые токены его не продлевают, так что
+ * сессия живёт не дольше {@code jwt.refresh-expiration} от входа, как часто её ни обновляй.
+ */
+@Service
+public class RefreshTokenService {
+
+    private static final Logger log = LoggerFactory.getLogger(RefreshTokenService.class);
+
+    private static final int TOKEN_BYTES = 32;
+    private static final SecureRandom random = new SecureRandom();
+    private static final Base64.Encoder base64Encoder = Base64.getUrlEncoder().withoutPadding();
+
+    private final RefreshTokenStore store;
+    private final long ttlSeconds;
+
+    public RefreshTokenService(RefreshTokenStore store,
+                               @Value("${jwt.refresh-expiration:604800}") long ttlSeconds) {
+        this.store = store;
+        this.ttlSeconds = ttlSeconds;
+    }
+
+    @Transactional
+    public String issue(long userId) {
+        UUID familyId = UUID.randomUUID();
+        Instant expiresAt = Instant.now().plusSeconds(ttlSeconds);
+        store.startFamily(familyId, userId, expiresAt);
+        return addToken(familyId, userId, expiresAt);
+    }
+
+    // Отзыв семейства должен сохраниться, хотя метод завершается исключением
+    @Transactional(noRollbackFor = TokenReuseException.class)
+    public Rotation rotate(String refreshToken) {
+        String hash = hash(refreshToken);
+        StoredToken stored = store.find(hash)
+                .orElseThrow(() -> new InvalidTokenException("unknown refresh token"));
+        if (stored.familyRevoked()) {
+            throw new InvalidTokenException("refresh token revoked");
+        }
+        Instant now = Instant.now();
+        if (!stored.expiresAt().isAfter(now)) {
+            throw new TokenExpiredException();
+        }
+        if (stored.used() || !store.markUsed(hash)) {
+            store.revokeFamily(stored.familyId());
+            log.warn("Refresh token reuse detected for user {}, session revoked", stored.userId());
+            throw new TokenReuseException();
+        }
+        Instant expiresAt = min(now.plusSeconds(ttlSeconds), stored.familyExpiresAt());
+        String next = addToken(stored.familyId(), stored.userId(), expiresAt);
+        return new Rotation(stored.userId(), next);
+    }
+
+    // Выход: отзываем сессию целиком, неизвестный токен молча игнорируем
+    @Transactional
+    public void revoke(String refreshToken) {
+        store.find(hash(refreshToken)).ifPresent(stored -> store.revokeFamily(stored.familyId()));
+    }
+
+    @Scheduled(fixedDelayString = "${auth.refresh.sweep-interval:1m}")
+    @Transactional
+    public void purgeExpired() {
+        int purged = store.purgeExpired(Instant.now());
+        if (purged > 0) {
+            log.debug("Purged {} expired refresh tokens", purged);
+        }
+    }
+
+    private String addToken(UUID familyId, long userId, Instant expiresAt) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String token = base64Encoder.encodeToString(bytes);
+        store.addToken(hash(token), familyId, userId, expiresAt);
+        return token;
+    }
+
+    private static Instant min(Instant a, Instant b) {
+        return a.isBefore(b) ? a : b;
+    }
+
+    static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return base64Encoder.encodeToString(digest.digest(token.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public record Rotation(long userId, String refreshToken) {}
+}
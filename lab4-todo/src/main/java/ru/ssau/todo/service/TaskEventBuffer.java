@@ -0,0 +1,60 @@
+package ru.ssau.todo.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import ru.ssau.todo.dto.TaskEvent;
+
+/**
+ * Кольцевой буфер событий одного подписчика. Запись никогда не ждёт отправки:
+ * при переполнении вытесняется самое старое событие, а число потерянных
+ * запоминается, чтобы подписчик получил сигнал перечитать задачи.
+ * Блокировка держится только на время операций с массивом, без ввода-вывода.
+ */
+final class TaskEventBuffer {
+
+    private final TaskEvent[] events;
+    private int head;
+    private int size;
+    private long dropped;
+
+    TaskEventBuffer(int capacity) {
+        this.events = new TaskEvent[Math.max(1, capacity)];
+    }
+
+    // true, если пришлось вытеснить старое событие
+    synchronized boolean offer(TaskEvent event) {
+        boolean overflow = size == events.length;
+        if (overflow) {
+            head = (head + 1) % events.length;
+            size--;
+            dropped++;
+        }
+        events[(head + size) % events.length] = event;
+        size++;
+        return overflow;
+    }
+
+    // Забирает всё накопленное разом, чтобы отправка шла уже без блокировки
+    synchronized List<TaskEvent> drain() {
+        List<TaskEvent> batch = new ArrayList<>(size);
+        while (size > 0) {
+            batch.add(events[head]);
+            events[head] = null;
+            head = (head + 1) % events.length;
+            size--;
+        }
+        return batch;
+    }
+
+    // Сколько событий потеряно с прошлого вызова
+    synchronized long takeDropped() {
+        long result = dropped;
+        dropped = 0;
+        return result;
+    }
+
+    synchronized boolean isEmpty() {
+        return size == 0 && dropped == 0;
+    }
+}
@@ -0,0 +1,14 @@
+package ru.ssau.todo.service;
+
+import java.util.List;
+
+import ru.ssau.todo.dto.TaskEvent;
+
+/**
+ * Источник событий для {@link TaskEventHub}. Вызывается внутри транзакции сервиса;
+ * подписчики получают события только после её коммита.
+ */
+public interface TaskEventBus {
+
+    void publish(List<TaskEvent> events);
+}
@@ -0,0 +1,213 @@
+package ru.ssau.todo.service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import ru.ssau.todo.dto.TaskEvent;
+
+/**
+ * Раздача событий задач подписчикам /tasks/stream. Соединение SSE — асинхронный
+ * запрос сервлета, поэтому простаивающий подписчик не держит ни потока, ни соединения с БД.
+ *
+ * <p>У каждого подписчика свой {@link TaskEventBuffer}: источник событий только кладёт
+ * в буфер и никогда не ждёт сети. Отправку делает небольшой общий пул, и на подписчика
+ * в очереди пула не больше одной задачи. Медленный клиент теряет самые старые события
+ * и получает {@code resync} — сигнал перечитать список задач.
+ */
+@Component
+public class TaskEventHub {
+
+    private final Duration timeout;
+    private final int bufferSize;
+    private final ThreadPoolExecutor sender;
+
+    private final ConcurrentHashMap<Long, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final AtomicLong eventIds = new AtomicLong();
+
+    private final Counter delivered;
+    private final Counter dropped;
+
+    public TaskEventHub(MeterRegistry meterRegistry,
+                        @Value("${tasks.events.timeout:30m}") Duration timeout,
+                        @Value("${tasks.events.buffer-size:64}") int bufferSize,
+                        @Value("${tasks.events.sender-threads:2}") int senderThreads) {
+        this.timeout = timeout;
+        this.bufferSize = bufferSize;
+        AtomicInteger counter = new AtomicInteger();
+        this.sender = new ThreadPoolExecutor(senderThreads, senderThreads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread thread = new Thread(r, "task-events-sender-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        Gauge.builder("tasks.events.subscribers", subscriberCount, AtomicInteger::get)
+                .description("Open /tasks/stream connections")
+                .register(meterRegistry);
+        this.delivered = Counter.builder("tasks.events.delivered")
+                .description("Task events written to subscribers")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("tasks.events.dropped")
+                .description("Task events evicted from a full subscriber buffer")
+                .register(meterRegistry);
+    }
+
+    public SseEmitter subscribe(long ownerId) {
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        Subscriber subscriber = new Subscriber(ownerId, emitter);
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(e -> subscriber.close());
+
+        subscribers.compute(ownerId, (id, set) -> {
+            Set<Subscriber> result = set != null ? set : ConcurrentHashMap.newKeySet();
+            result.add(subscriber);
+            return result;
+        });
+        subscriberCount.incrementAndGet();
+        return emitter;
+    }
+
+    public void dispatch(TaskEvent event) {
+        Set<Subscriber> set = subscribers.get(event.ownerId());
+        if (set == null) {
+            return;
+        }
+        for (Subscriber subscriber : set) {
+            if (subscriber.buffer.offer(event)) {
+                dropped.increment();
+            }
+            subscriber.schedule();
+        }
+    }
+
+    // Часть событий могла пройти мимо (например, при переподключении к источнику)
+    public void resyncAll() {
+        forEachSubscriber(subscriber -> subscriber.resyncDue = true);
+    }
+
+    // Комментарий SSE держит соединение через прокси и выявляет отвалившихся клиентов
+    @Scheduled(fixedDelayString = "${tasks.events.heartbeat-interval:30s}")
+    public void heartbeat() {
+        forEachSubscriber(subscriber -> subscriber.heartbeatDue = true);
+    }
+
+    public int subscriberCount() {
+        return subscriberCount.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sender.shutdownNow();
+        for (Set<Subscriber> set : subscribers.values()) {
+            for (Subscriber subscriber : set) {
+                subscriber.emitter.complete();
+            }
+        }
+    }
+
+    private void forEachSubscriber(Consumer<Subscriber> action) {
+        for (Set<Subscriber> set : subscribers.values()) {
+            for (Subscriber subscriber : set) {
+                action.accept(subscriber);
+                subscriber.schedule();
+            }
+        }
+    }
+
+    private final class Subscriber {
+
+        private final long ownerId;
+        private final SseEmitter emitter;
+        private final TaskEventBuffer buffer = new TaskEventBuffer(bufferSize);
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private volatile boolean heartbeatDue;
+        private volatile boolean resyncDue;
+
+        private Subscriber(long ownerId, SseEmitter emitter) {
+            this.ownerId = ownerId;
+            this.emitter = emitter;
+        }
+
+        // Не больше одной задачи отправки на подписчика одновременно
+        private void schedule() {
+            if (closed.get() || !scheduled.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                sender.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                scheduled.set(false);
+            }
+        }
+
+        private void drain() {
+            try {
+                do {
+                    send();
+                    scheduled.set(false);
+                    // Событие могло прийти после send(), но до сброса флага
+                } while (hasWork() && scheduled.compareAndSet(false, true));
+            } catch (IOException | IllegalStateException e) {
+                // Клиент отключился или соединение уже завершено
+                close();
+            }
+        }
+
+        private void send() throws IOException {
+            long lost = buffer.takeDropped();
+            if (lost > 0 || resyncDue) {
+                resyncDue = false;
+                emitter.send(SseEmitter.event().name("resync").data(lost));
+            }
+            for (TaskEvent event : buffer.drain()) {
+                emitter.send(SseEmitter.event()
+                        .id(String.valueOf(eventIds.incrementAndGet()))
+                        .name(event.type().name())
+                        .data(event, MediaType.APPLICATION_JSON));
+                delivered.increment();
+            }
+            if (heartbeatDue) {
+                heartbeatDue = false;
+                emitter.send(SseEmitter.event().comment("ping"));
+            }
+        }
+
+        private boolean hasWork() {
+            return !closed.get() && (!buffer.isEmpty() || heartbeatDue || resyncDue);
+        }
+
+        private void close() {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            subscribers.computeIfPresent(ownerId, (id, set) -> {
+                set.remove(this);
+                return set.isEmpty() ? null : set;
+            });
+            subscriberCount.decrementAndGet();
+        }
+    }
+}
@@ -1,22 +1,53 @@
 package ru.ssau.todo.service;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import tools.jackson.core.StreamWriteFeature;
+import tools.jackson.databind.SequenceWriter;
+import tools.jackson.databind.SerializationFeature;
+import tools.jackson.databind.json.JsonMapper;
+
+import ru.ssau.todo.dto.TaskBatchItemResult;
+import ru.ssau.todo.dto.TaskBatchResponse;
+import ru.ssau.todo.dto.TaskCursor;
 import ru.ssau.todo.dto.TaskDto;
+import ru.ssau.todo.dto.TaskEvent;
+import ru.ssau.todo.dto.TaskFilterDto;
+import ru.ssau.todo.dto.TaskPage;
 import ru.ssau.todo.entity.Task;
 import ru.ssau.todo.entity.TaskStatus;
 import ru.ssau.todo.entity.User;
 import ru.ssau.todo.exception.TaskBusinessException;
 import ru.ssau.todo.exception.TaskNotFoundException;
+import ru.ssau.todo.exception.TaskValidationException;
 import ru.ssau.todo.exception.UserNotFoundException;
 import ru.ssau.todo.mapper.TaskMapper;
+import ru.ssau.todo.repository.TaskQueryRepository;
 import ru.ssau.todo.repository.TaskRepository;
 import ru.ssau.todo.repository.UserRepository;
 
@@ -26,13 +57,40 @@ public class TaskService {
     private static final int MAX_ACTIVE_TASKS = 10;
     private static final long DELETE_RESTRICTION_MINUTES = 5;
     private static final Set<TaskStatus> ACTIVE_STATUSES = Set.of(TaskStatus.OPEN, TaskStatus.IN_PROGRESS);
+    private static final int EXPORT_FLUSH_ROWS = 500;
 
     private final TaskRepository taskRepository;
     private final UserRepository userRepository;
+    private final JsonMapper jsonMapper;
+    private final Validator validator;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+    private final int maxBatchSize;
+    // Счётчики отказов по лимиту: create, update, batch — регистрируются один раз
+    private final Map<String, Counter> limitRejections;
+    private final TaskEventBus taskEventBus;
 
-    public TaskService(TaskRepository taskRepository, UserRepository userRepository) {
+    public TaskService(TaskRepository taskRepository,
+                       UserRepository userRepository,
+                       JsonMapper jsonMapper,
+                       Validator validator,
+                       MeterRegistry meterRegistry,
+                       TaskEventBus taskEventBus,
+                       @Value("${tasks.page.default-size:50}") int defaultPageSize,
+                       @Value("${tasks.page.max-size:200}") int maxPageSize,
+                       @Value("${tasks.batch.max-size:1000}") int maxBatchSize) {
         this.taskRepository = taskRepository;
         this.userRepository = userRepository;
+        this.jsonMapper = jsonMapper;
+        this.validator = validator;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+        this.maxBatchSize = maxBatchSize;
+        this.limitRejections = Map.of(
+                "create", limitRejectionCounter(meterRegistry, "create"),
+                "update", limitRejectionCounter(meterRegistry, "update"),
+                "batch", limitRejectionCounter(meterRegistry, "batch"));
+        this.taskEventBus = taskEventBus;
     }
 
     // В ru.ssau.todo.service.TaskService.java
@@ -43,7 +101,11 @@ public class TaskService {
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new UserNotFoundException(username));
 
-        checkActiveTasksLimit(user.getId());
+        if (isActiveStatus(taskDto.getStatus())) {
+            reserveActiveSlot(user.getId(), "create");
+        } else {
+            checkActiveTasksLimit(user.getId(), "create");
+        }
 
         Task task = new Task();
         task.setTitle(taskDto.getTitle());
@@ -52,32 +114,106 @@ public class TaskService {
         task.setCreatedAt(LocalDateTime.now());
 
         Task savedTask = taskRepository.save(task);
-        return TaskMapper.toDto(savedTask);
+        TaskDto created = TaskMapper.toDto(savedTask);
+        taskEventBus.publish(List.of(TaskEvent.created(created)));
+        return created;
+    }
+
+    // Пакетное создание: лимит активных задач проверяется один раз на весь пакет,
+    // вставка — одним JDBC-батчем. Невалидные элементы и элементы сверх лимита
+    // отклоняются по отдельности, остальные создаются
+    @Transactional
+    public TaskBatchResponse createTasks(List<TaskDto> tasks, String username) {
+        if (tasks == null || tasks.isEmpty()) {
+            throw new TaskValidationException("Batch must not be empty", "tasks");
+        }
+        if (tasks.size() > maxBatchSize) {
+            throw new TaskValidationException(
+                    String.format("Batch size %d exceeds maximum %d", tasks.size(), maxBatchSize), "tasks");
+        }
+
+        User user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new UserNotFoundException(username));
+        int initialActive = userRepository.lockActiveTasksById(user.getId()).orElse(0);
+        int active = initialActive;
+
+        TaskBatchItemResult[] results = new TaskBatchItemResult[tasks.size()];
+        List<Integer> acceptedIndexes = new ArrayList<>(tasks.size());
+        List<TaskDto> accepted = new ArrayList<>(tasks.size());
+        LocalDateTime now = LocalDateTime.now();
+
+        for (int i = 0; i < tasks.size(); i++) {
+            TaskDto taskDto = tasks.get(i);
+            String error = validateBatchItem(taskDto);
+            // Те же правила, что в createTask: при исчерпанном лимите не создаются никакие задачи
+            if (error == null && active >= MAX_ACTIVE_TASKS) {
+                countLimitRejection("batch");
+                error = String.format("User %d already has %d active tasks (maximum %d)",
+                        user.getId(), active, MAX_ACTIVE_TASKS);
+            }
+            if (error != null) {
+                results[i] = TaskBatchItemResult.rejected(i, error);
+                continue;
+            }
+            if (isActiveStatus(taskDto.getStatus())) {
+                active++;
+            }
+            accepted.add(new TaskDto(null, taskDto.getTitle(), taskDto.getStatus(), user.getId(), now, 0L));
+            acceptedIndexes.add(i);
+        }
+
+        List<Long> ids = taskRepository.insertAll(accepted);
+        if (active > initialActive) {
+            userRepository.addActiveTasks(user.getId(), active - initialActive);
+        }
+
+        List<TaskEvent> events = new ArrayList<>(accepted.size());
+        for (int j = 0; j < accepted.size(); j++) {
+            TaskDto created = accepted.get(j);
+            created.setId(ids.get(j));
+            int index = acceptedIndexes.get(j);
+            results[index] = TaskBatchItemResult.created(index, created);
+            events.add(TaskEvent.created(created));
+        }
+        if (!events.isEmpty()) {
+            taskEventBus.publish(events);
+        }
+        return new TaskBatchResponse(accepted.size(), tasks.size() - accepted.size(), List.of(results));
     }
 
+    // Один условный UPDATE: владелец, версия и лимит активных задач проверяются в самом
+    // statement. Причину отказа выясняем отдельным чтением только когда строка не обновилась
     @Transactional
     public TaskDto updateTask(TaskDto taskDto) {
+        Optional<TaskDto> updated = taskRepository.updateIfCurrent(taskDto, ACTIVE_STATUSES, MAX_ACTIVE_TASKS);
+        if (updated.isPresent()) {
+            taskEventBus.publish(List.of(TaskEvent.updated(updated.get())));
+            return updated.get();
+        }
+
         Task existing = taskRepository.findById(taskDto.getId())
                 .orElseThrow(() -> new TaskNotFoundException(taskDto.getId()));
 
         if (!existing.getCreatedBy().getId().equals(taskDto.getCreatedBy())) {
             throw new TaskBusinessException("Cannot change task owner");
         }
-
-        if (isBecomingActive(taskDto.getStatus(), existing.getStatus())) {
-            checkActiveTasksLimit(existing.getCreatedBy().getId());
+        if (taskDto.getVersion() != null && !taskDto.getVersion().equals(existing.getVersion())) {
+            throw new ObjectOptimisticLockingFailureException(Task.class, taskDto.getId());
         }
-
-        existing.setTitle(taskDto.getTitle());
-        existing.setStatus(taskDto.getStatus());
-
-        Task updatedTask = taskRepository.save(existing);
-        return TaskMapper.toDto(updatedTask);
+        // Владелец и версия совпали — значит, не хватило слота активной задачи
+        Long ownerId = existing.getCreatedBy().getId();
+        countLimitRejection("update");
+        throw new TaskBusinessException(
+                String.format("User %d already has %d active tasks (maximum %d)",
+                        ownerId, countActiveTasksByUserId(ownerId), MAX_ACTIVE_TASKS)
+        );
     }
 
     @Transactional
     public void deleteTask(Long id) {
-        Task task = taskRepository.findById(id)
+        // Под блокировкой: второй параллельный DELETE дождётся первого и получит 404,
+        // а не уменьшит счётчик активных задач ещё раз
+        Task task = taskRepository.findByIdForUpdate(id)
                 .orElseThrow(() -> new TaskNotFoundException(id));
 
         if (task.getCreatedAt().isAfter(LocalDateTime.now().minusMinutes(DELETE_RESTRICTION_MINUTES))) {
@@ -88,6 +224,12 @@ public class TaskService {
         }
 
         taskRepository.deleteById(id);
+        if (isActiveStatus(task.getStatus()) && task.getCreatedBy() != null) {
+            userRepository.decrementActiveTasks(task.getCreatedBy().getId());
+        }
+        if (task.getCreatedBy() != null) {
+            taskEventBus.publish(List.of(TaskEvent.deleted(id, task.getCreatedBy().getId())));
+        }
     }
 
     @Transactional(readOnly = true)
@@ -97,27 +239,118 @@ public class TaskService {
         return TaskMapper.toDto(task);
     }
 
+    // Версия без загрузки сущности — для ответа 304 на If-None-Match
     @Transactional(readOnly = true)
-    public List<TaskDto> findAll(LocalDateTime from, LocalDateTime to, Long userId) {
-        if (userId != null) {
-            userRepository.findById(userId)
-                    .orElseThrow(() -> new UserNotFoundException(userId));
+    public Long findVersion(Long id) {
+        return taskRepository.findVersionById(id).orElse(null);
+    }
+
+    // ETag страницы для сверки с If-None-Match: те же строки, что вернул бы findAll,
+    // но без заголовков и владельцев — только id и версии
+    @Transactional(readOnly = true)
+    public String findPageETag(TaskFilterDto filter) {
+        checkUserExists(filter.getUserId());
+        int size = pageSize(filter);
+        TaskCursor cursor = cursor(filter);
+        List<TaskQueryRepository.VersionedId> rows = taskRepository.findPageVersions(
+                filter.getFrom(), filter.getTo(), filter.getUserId(),
+                cursor == null ? null : cursor.createdAt(),
+                cursor == null ? null : cursor.id(),
+                size + 1);
+        return pageETag(rows);
+    }
+
+    @Transactional(readOnly = true)
+    public TaskPage findAll(TaskFilterDto filter) {
+        Long userId = filter.getUserId();
+        checkUserExists(userId);
+
+        int size = pageSize(filter);
+        TaskCursor cursor = cursor(filter);
+
+        // Берём на одну строку больше, чтобы понять, есть ли следующая страница
+        List<TaskDto> tasks = taskRepository.findTasksByDateRangeAndUser(
+                filter.getFrom(), filter.getTo(), userId,
+                cursor == null ? null : cursor.createdAt(),
+                cursor == null ? null : cursor.id(),
+                size + 1);
+        // Лишняя строка тоже входит в ETag: от неё зависит курсор следующей страницы
+        String eTag = pageETag(tasks.stream()
+                .map(t -> new TaskQueryRepository.VersionedId(t.getId(), t.getVersion()))
+                .toList());
+
+        String nextCursor = null;
+        if (tasks.size() > size) {
+            tasks = tasks.subList(0, size);
+            TaskDto last = tasks.get(size - 1);
+            nextCursor = new TaskCursor(last.getCreatedAt(), last.getId()).encode();
         }
+        return new TaskPage(tasks, nextCursor, eTag);
+    }
 
-        List<Task> tasks = taskRepository.findTasksByDateRangeAndUser(from, to, userId);
-        return tasks.stream()
-                .map(TaskMapper::toDto)
-                .collect(Collectors.toList());
+    // Пишет задачи в NDJSON по мере чтения из курсора БД — память не зависит от числа строк
+    @Transactional(readOnly = true)
+    public void exportTasks(TaskFilterDto filter, OutputStream out) throws IOException {
+        int rows = 0;
+        try (Stream<TaskDto> tasks = taskRepository.streamTasks(
+                     filter.getFrom(), filter.getTo(), filter.getUserId());
+             SequenceWriter writer = jsonMapper.writer()
+                     .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                     .without(StreamWriteFeature.AUTO_CLOSE_TARGET)
+                     .withRootValueSeparator("\n")
+                     .writeValues(out)) {
+            Iterator<TaskDto> it = tasks.iterator();
+            while (it.hasNext()) {
+                writer.write(it.next());
+                if (++rows % EXPORT_FLUSH_ROWS == 0) {
+                    writer.flush();
+                }
+            }
+        }
+        // Разделитель ставится только между строками — завершаем последнюю
+        if (rows > 0) {
+            out.write('\n');
+        }
+        out.flush();
+    }
+
+    // Для подписки на ленту событий: principal в SecurityContext — имя пользователя
+    @Transactional(readOnly = true)
+    public Long findUserId(String username) {
+        return userRepository.findByUsername(username)
+                .map(User::getId)
+                .orElseThrow(() -> new UserNotFoundException(username));
+    }
+
+    @Transactional(readOnly = true)
+    public void checkUserExists(Long userId) {
+        if (userId != null && !userRepository.existsById(userId)) {
+            throw new UserNotFoundException(userId);
+        }
     }
 
     @Transactional(readOnly = true)
     public Long countActiveTasksByUserId(Long userId) {
-        return taskRepository.countActiveTasksByUserId(userId);
+        return userRepository.findActiveTasksById(userId)
+                .map(Integer::longValue)
+                .orElse(0L);
     }
 
-    private void checkActiveTasksLimit(Long userId) {
-        long activeCount = taskRepository.countActiveTasksByUserId(userId);
+    // Занимает слот активной задачи в той же транзакции, что и запись задачи
+    private void reserveActiveSlot(Long userId, String operation) {
+        if (userRepository.tryIncrementActiveTasks(userId, MAX_ACTIVE_TASKS) == 0) {
+            countLimitRejection(operation);
+            throw new TaskBusinessException(
+                    String.format("User %d already has %d active tasks (maximum %d)",
+                            userId, MAX_ACTIVE_TASKS, MAX_ACTIVE_TASKS)
+            );
+        }
+    }
+
+    private void checkActiveTasksLimit(Long userId, String operation) {
+        long activeCount = countActiveTasksByUserId(userId);
         if (activeCount >= MAX_ACTIVE_TASKS) {
+            countLimitRejection(operation);
             throw new TaskBusinessException(
                     String.format("User %d already has %d active tasks (maximum %d)",
                             userId, activeCount, MAX_ACTIVE_TASKS)
@@ -125,8 +358,53 @@ public class TaskService {
         }
     }
 
-    private boolean isBecomingActive(TaskStatus newStatus, TaskStatus oldStatus) {
-        return isActiveStatus(newStatus) && !isActiveStatus(oldStatus);
+    // Тег — операция (create, update, batch), а не пользователь: число рядов метрики не растёт
+    private void countLimitRejection(String operation) {
+        limitRejections.get(operation).increment();
+    }
+
+    private static Counter limitRejectionCounter(MeterRegistry meterRegistry, String operation) {
+        return Counter.builder("tasks.active_limit.rejections")
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+
+    // Ошибки Bean Validation одного элемента пакета одной строкой; null — элемент валиден
+    private String validateBatchItem(TaskDto taskDto) {
+        if (taskDto == null) {
+            return "Task must not be null";
+        }
+        Set<ConstraintViolation<TaskDto>> violations = validator.validate(taskDto);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+
+    private int pageSize(TaskFilterDto filter) {
+        return filter.getSize() == null ? defaultPageSize : Math.min(filter.getSize(), maxPageSize);
+    }
+
+    private static TaskCursor cursor(TaskFilterDto filter) {
+        return filter.getCursor() == null ? null : TaskCursor.decode(filter.getCursor());
+    }
+
+    // SHA-256 по парам (id, версия) строк страницы: любое добавление, удаление
+    // или изменение строки в пределах страницы меняет ETag
+    private static String pageETag(List<TaskQueryRepository.VersionedId> rows) {
+        ByteBuffer buffer = ByteBuffer.allocate(rows.size() * 2 * Long.BYTES);
+        for (TaskQueryRepository.VersionedId row : rows) {
+            buffer.putLong(row.id()).putLong(row.version());
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(buffer.array());
+            return "W/\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, 16)) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
     }
 
     private boolean isActiveStatus(TaskStatus status) {
@@ -1,57 +1,87 @@
 package ru.ssau.todo.service;
 
+import java.io.ByteArrayInputStream;
 import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.Base64;
-import java.util.List;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
-
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
 import ru.ssau.todo.exception.InvalidTokenException;
+import ru.ssau.todo.exception.TokenException;
 import ru.ssau.todo.exception.TokenExpiredException;
+import ru.ssau.todo.security.JwtClaims;
+import ru.ssau.todo.security.JwtClaimsParser;
+import ru.ssau.todo.security.JwtSigner;
+import ru.ssau.todo.security.TokenCache;
 
 @Service
 public class TokenService {
 
-    private static final String HMAC_SHA256      = "HmacSHA256";
     private static final long   ACCESS_EXPIRATION  = 15 * 60;        // 15 минут
-    private static final long   REFRESH_EXPIRATION = 7 * 24 * 3600;  // 7 дней
 
     private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final JwtClaimsParser claimsParser = new JwtClaimsParser(objectMapper.getFactory());
+    private static final Base64.Encoder base64Encoder = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder base64Decoder = Base64.getUrlDecoder();
+
+    private final JwtSigner signer;
+    // Имя пользователя в access token избавляет JwtFilter от поиска пользователя
+    private final boolean includeUsername;
+
+    // Проверенные токены: клиент присылает один и тот же access token сотни раз за его жизнь
+    private final TokenCache<JwtClaims> tokenCache;
+
+    // Исходы фиксированы — таймеры регистрируются один раз, а не на каждый запрос
+    private final Timer validTimer;
+    private final Timer expiredTimer;
+    private final Timer invalidTimer;
+
+    public TokenService(JwtSigner signer,
+                        MeterRegistry meterRegistry,
+                        @Value("${jwt.cache.max-size:10000}") int cacheMaxSize,
+                        @Value("${jwt.include-username:false}") boolean includeUsername) {
+        this.signer          = signer;
+        this.tokenCache      = new TokenCache<>(cacheMaxSize);
+        this.includeUsername = includeUsername;
+
+        Gauge.builder("auth.token.cache.size", tokenCache, TokenCache::size)
+                .register(meterRegistry);
+        FunctionCounter.builder("auth.token.cache.requests", tokenCache, TokenCache::getHits)
+                .tag("result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("auth.token.cache.requests", tokenCache, TokenCache::getMisses)
+                .tag("result", "miss")
+                .register(meterRegistry);
+        FunctionCounter.builder("auth.token.cache.evictions", tokenCache, TokenCache::getEvictions)
+                .register(meterRegistry);
+        this.validTimer   = validationTimer(meterRegistry, "valid");
+        this.expiredTimer = validationTimer(meterRegistry, "expired");
+        this.invalidTimer = validationTimer(meterRegistry, "invalid");
+    }
 
-    // Секрет читается из переменной среды — не из кода и не из конфига
-    private String getSecret() {
-        String secret = System.getenv("JWT_SECRET");
-        if (secret == null || secret.length() < 32) {
-            throw new IllegalStateException(
-                "JWT_SECRET environment variable is not set or shorter than 32 characters");
-        }
-        return secret;
+    private static Timer validationTimer(MeterRegistry meterRegistry, String result) {
+        return Timer.builder("auth.token.validation")
+                .tag("result", result)
+                .register(meterRegistry);
     }
 
     public String generateToken(Map<String, Object> payload) {
         try {
-            String json = objectMapper.writeValueAsString(payload);
-
-            String encodedPayload = Base64.getUrlEncoder()
-                    .withoutPadding()
-                    .encodeToString(json.getBytes(StandardCharsets.UTF_8));
-
-            Mac mac = Mac.getInstance(HMAC_SHA256);
-            mac.init(new SecretKeySpec(getSecret().getBytes(StandardCharsets.UTF_8), HMAC_SHA256));
-            byte[] signatureBytes = mac.doFinal(encodedPayload.getBytes(StandardCharsets.UTF_8));
-
-            String encodedSignature = Base64.getUrlEncoder()
-                    .withoutPadding()
-                    .encodeToString(signatureBytes);
-
-            return encodedPayload + "." + encodedSignature;
+            byte[] json = objectMapper.writeValueAsBytes(payload);
+            return signer.sign(base64Encoder.encode(json));
         } catch (IllegalStateException e) {
             throw e;
         } catch (Exception e) {
@@ -59,40 +89,53 @@ public class TokenService {
         }
     }
 
-    @SuppressWarnings("unchecked")
-    public Map<String, Object> validateToken(String token) {
-        // Проверка структуры — ровно две части через точку
-        String[] parts = token.split("\\.");
-        if (parts.length != 2) {
-            throw new InvalidTokenException("expected 2 parts, got " + parts.length);
+    // Время проверки с разбивкой по исходу: valid, expired, invalid
+    public JwtClaims validateToken(String token) {
+        long start = System.nanoTime();
+        try {
+            JwtClaims claims = verify(token);
+            validTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return claims;
+        } catch (TokenException e) {
+            Timer timer = e instanceof TokenExpiredException ? expiredTimer : invalidTimer;
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+    }
+
+    private JwtClaims verify(String token) {
+        // Проверка структуры — ровно две части через точку (без regex из String.split)
+        int dot = token.indexOf('.');
+        if (dot <= 0 || token.indexOf('.', dot + 1) >= 0) {
+            throw new InvalidTokenException("expected 2 parts");
         }
 
-        String encodedPayload    = parts[0];
-        String providedSignature = parts[1];
+        String encodedPayload    = token.substring(0, dot);
+        String providedSignature = token.substring(dot + 1);
 
-        // Пересчитываем подпись и сравниваем
+        long now = Instant.now().getEpochSecond();
+        JwtClaims cached = tokenCache.get(providedSignature, encodedPayload, now);
+        if (cached != null) {
+            return cached;
+        }
+
+        // Пересчитываем подпись по исходному диапазону байт и сравниваем
         try {
-            Mac mac = Mac.getInstance(HMAC_SHA256);
-            mac.init(new SecretKeySpec(getSecret().getBytes(StandardCharsets.UTF_8), HMAC_SHA256));
-            byte[] expectedBytes = mac.doFinal(encodedPayload.getBytes(StandardCharsets.UTF_8));
-            String expectedSignature = Base64.getUrlEncoder()
-                    .withoutPadding()
-                    .encodeToString(expectedBytes);
-
-            if (!constantTimeEquals(providedSignature, expectedSignature)) {
+            byte[] tokenBytes = token.getBytes(StandardCharsets.ISO_8859_1);
+            if (!signer.verify(tokenBytes, dot)) {
                 throw new InvalidTokenException("signature mismatch");
             }
 
-            byte[] decoded = Base64.getUrlDecoder().decode(encodedPayload);
-            Map<String, Object> payload = objectMapper.readValue(decoded, Map.class);
+            JwtClaims claims = claimsParser.parse(
+                    base64Decoder.wrap(new ByteArrayInputStream(tokenBytes, 0, dot)));
 
             // Проверка срока действия
-            Number exp = (Number) payload.get("exp");
-            if (exp == null || Instant.now().isAfter(Instant.ofEpochSecond(exp.longValue()))) {
+            if (now > claims.exp()) {
                 throw new TokenExpiredException();
             }
 
-            return payload;
+            tokenCache.put(providedSignature, encodedPayload, claims, claims.exp(), now);
+            return claims;
         } catch (InvalidTokenException | TokenExpiredException e) {
             throw e;  // специфичные — пробрасываем как есть
         } catch (Exception e) {
@@ -100,36 +143,35 @@ public class TokenService {
         }
     }
 
-    // Защита от timing-атак: сравнение за константное время
-    private boolean constantTimeEquals(String a, String b) {
-        if (a.length() != b.length()) return false;
-        int result = 0;
-        for (int i = 0; i < a.length(); i++) {
-            result |= a.charAt(i) ^ b.charAt(i);
+    // Роли кладём битовой маской (claim "rm") — токен короче, чем со списком строк
+    public Map<String, Object> createAccessPayload(Long userId, String username, long roleMask) {
+        long now = Instant.now().getEpochSecond();
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("userId", userId);
+        payload.put("rm",     roleMask);
+        payload.put("iat",    now);
+        payload.put("exp",    now + ACCESS_EXPIRATION);
+        // jti числом, а не строкой: разбирается без аллокаций и сразу годится ключом TokenDenylist
+        payload.put("jti",    nextJti());
+        if (includeUsername) {
+            payload.put("username", username);
         }
-        return result == 0;
+        return payload;
     }
 
-    public Map<String, Object> createAccessPayload(Long userId, List<String> roles) {
-        long now = Instant.now().getEpochSecond();
-        return Map.of(
-                "userId", userId,
-                "roles",  roles,
-                "iat",    now,
-                "exp",    now + ACCESS_EXPIRATION
-        );
+    private static long nextJti() {
+        long jti;
+        do {
+            jti = ThreadLocalRandom.current().nextLong();
+        } while (jti == JwtClaims.NO_JTI);
+        return jti;
     }
 
-    public Map<String, Object> createRefreshPayload(Long userId) {
-        long now = Instant.now().getEpochSecond();
-        return Map.of(
-                "userId", userId,
-                "iat",    now,
-                "exp",    now + REFRESH_EXPIRATION
-        );
+    public TokenCache<JwtClaims> getTokenCache() {
+        return tokenCache;
     }
 
     public Long extractUserId(String token) {
-        return ((Number) validateToken(token).get("userId")).longValue();
+        return validateToken(token).userId();
     }
 }
\ No newline at end of file
@@ -0,0 +1,30 @@
+-- Исходная схема. IF NOT EXISTS — чтобы миграция прошла и на базе,
+-- созданной вручную по предыдущим лабораторным (см. spring.flyway.baseline-on-migrate)
+
+CREATE TABLE IF NOT EXISTS roles (
+    id   BIGSERIAL PRIMARY KEY,
+    name VARCHAR(50) NOT NULL UNIQUE
+);
+
+CREATE TABLE IF NOT EXISTS users (
+    id       BIGSERIAL PRIMARY KEY,
+    username VARCHAR(100) NOT NULL UNIQUE,
+    password VARCHAR(255) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS user_roles (
+    user_id BIGINT NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    role_id BIGINT NOT NULL REFERENCES roles (id),
+    PRIMARY KEY (user_id, role_id)
+);
+
+CREATE TABLE IF NOT EXISTS task (
+    id         BIGSERIAL PRIMARY KEY,
+    title      VARCHAR(255) NOT NULL,
+    status     VARCHAR(50)  NOT NULL,
+    created_by BIGINT REFERENCES users (id),
+    created_at TIMESTAMP(6)
+);
+
+INSERT INTO roles (name) VALUES ('ROLE_USER'), ('ROLE_ADMIN')
+ON CONFLICT (name) DO NOTHING;
@@ -0,0 +1,8 @@
+-- Счётчик активных задач пользователя (OPEN, IN_PROGRESS), см. TaskService.reserveActiveSlot
+ALTER TABLE users ADD COLUMN IF NOT EXISTS active_tasks INTEGER NOT NULL DEFAULT 0;
+
+UPDATE users u
+SET active_tasks = (SELECT COUNT(*)
+                    FROM task t
+                    WHERE t.created_by = u.id
+                      AND t.status IN ('OPEN', 'IN_PROGRESS'));
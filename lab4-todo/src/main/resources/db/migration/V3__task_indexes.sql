@@ -0,0 +1,12 @@
+-- Выборка задач пользователя за период и keyset-пагинация по (created_at, id)
+CREATE INDEX IF NOT EXISTS idx_task_created_by_created_at
+    ON task (created_by, created_at DESC, id DESC);
+
+-- Выборка без фильтра по пользователю (админские списки, выгрузка)
+CREATE INDEX IF NOT EXISTS idx_task_created_at
+    ON task (created_at DESC, id DESC);
+
+-- Частичный индекс только по активным задачам: подсчёт и сверка счётчика users.active_tasks
+CREATE INDEX IF NOT EXISTS idx_task_active_by_owner
+    ON task (created_by)
+    WHERE status IN ('OPEN', 'IN_PROGRESS');
@@ -0,0 +1,19 @@
+-- Id задач и пользователей выдаются блоками по 50 (pooled-lo в Hibernate):
+-- один nextval резервирует [v, v + 50). Вставки через DEFAULT (JDBC, ручной SQL)
+-- тоже получают отдельный nextval, поэтому с блоками Hibernate они не пересекаются.
+-- Столбец мог быть создан как BIGSERIAL (V1) или как identity (ddl-auto прошлых лаб) —
+-- у identity шаг меняется через ALTER TABLE, у serial — через ALTER SEQUENCE.
+-- Роли остаются с шагом 1: id роли — номер бита в маске токена.
+DO $$
+DECLARE
+    t TEXT;
+BEGIN
+    FOREACH t IN ARRAY ARRAY['task', 'users'] LOOP
+        IF EXISTS (SELECT 1 FROM pg_attribute
+                   WHERE attrelid = t::regclass AND attname = 'id' AND attidentity <> '') THEN
+            EXECUTE format('ALTER TABLE %I ALTER COLUMN id SET INCREMENT BY 50', t);
+        ELSE
+            EXECUTE format('ALTER SEQUENCE %s INCREMENT BY 50', pg_get_serial_sequence(t, 'id'));
+        END IF;
+    END LOOP;
+END $$;
@@ -0,0 +1,23 @@
+-- Непрозрачные refresh-токены. В базе только SHA-256 токена, поиск и отзыв — по первичному ключу.
+-- Семейство — цепочка токенов одной сессии: при повторном использовании токена отзывается целиком
+
+CREATE TABLE IF NOT EXISTS refresh_token_family (
+    id         UUID PRIMARY KEY,
+    user_id    BIGINT       NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    revoked    BOOLEAN      NOT NULL DEFAULT FALSE,
+    expires_at TIMESTAMP(6) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS refresh_token (
+    token_hash VARCHAR(64)  PRIMARY KEY,
+    family_id  UUID         NOT NULL REFERENCES refresh_token_family (id) ON DELETE CASCADE,
+    user_id    BIGINT       NOT NULL,
+    used       BOOLEAN      NOT NULL DEFAULT FALSE,
+    expires_at TIMESTAMP(6) NOT NULL
+);
+
+-- Фоновая очистка удаляет истёкшие записи диапазоном по expires_at
+CREATE INDEX IF NOT EXISTS idx_refresh_token_expires_at ON refresh_token (expires_at);
+CREATE INDEX IF NOT EXISTS idx_refresh_token_family_expires_at ON refresh_token_family (expires_at);
+-- Для каскадного удаления токенов семейства
+CREATE INDEX IF NOT EXISTS idx_refresh_token_family_id ON refresh_token (family_id);
@@ -0,0 +1,9 @@
+-- Отозванные access-токены (выход, блокировка). Строка нужна только до истечения токена;
+-- при старте приложение читает живые строки в память (TokenDenylist) и дальше в базу не ходит
+CREATE TABLE IF NOT EXISTS revoked_access_token (
+    jti        BIGINT       PRIMARY KEY,
+    user_id    BIGINT       NOT NULL,
+    expires_at TIMESTAMP(6) NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_revoked_access_token_expires_at ON revoked_access_token (expires_at);
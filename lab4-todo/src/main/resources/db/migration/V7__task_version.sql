@@ -0,0 +1,3 @@
+-- Версия задачи для оптимистической блокировки (@Version) и ETag.
+-- DEFAULT 0 — для существующих строк и для пакетной вставки через JDBC
+ALTER TABLE task ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,166 @@
+package ru.ssau.todo.filter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ru.ssau.todo.exception.DbOverloadedException;
+import ru.ssau.todo.security.PasswordHasher;
+
+class DbAdmissionFilterTest {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final DbAdmissionFilter filter = new DbAdmissionFilter(registry, 1, Duration.ofMillis(50));
+
+	@Test
+	void rejectsWith503WhenAllPermitsAreHeld() throws Exception {
+		CountDownLatch inside = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		Future<?> holder = executor.submit(() -> {
+			filter.doFilter(request(), new MockHttpServletResponse(), (req, res) -> {
+				inside.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			});
+			return null;
+		});
+		assertThat(inside.await(5, TimeUnit.SECONDS)).isTrue();
+
+		MockHttpServletResponse rejected = new MockHttpServletResponse();
+		filter.doFilter(request(), rejected, (req, res) -> {});
+
+		assertThat(rejected.getStatus()).isEqualTo(503);
+		assertThat(rejected.getHeader("Retry-After")).isEqualTo("1");
+		assertThat(registry.get("db.admission.wait").tag("outcome", "rejected").timer().count()).isEqualTo(1);
+
+		release.countDown();
+		holder.get(5, TimeUnit.SECONDS);
+		executor.shutdown();
+
+		MockHttpServletResponse admitted = new MockHttpServletResponse();
+		filter.doFilter(request(), admitted, (req, res) -> {});
+		assertThat(admitted.getStatus()).isEqualTo(200);
+		assertThat(registry.get("db.admission.available").gauge().value()).isEqualTo(1);
+	}
+
+	@Test
+	void loginWaitingForBcryptDoesNotHoldThePermit() throws Exception {
+		CountDownLatch hashing = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		PasswordHasher hasher = new PasswordHasher(blockingEncoder(hashing, release), registry,
+				10, 1, 4, Duration.ofSeconds(5), Duration.ofSeconds(1));
+		AtomicBoolean loggedIn = new AtomicBoolean();
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			MockHttpServletResponse loginResponse = new MockHttpServletResponse();
+			Future<?> login = executor.submit(() -> {
+				filter.doFilter(new MockHttpServletRequest("POST", "/auth/login"), loginResponse,
+						(req, res) -> loggedIn.set(hasher.matches("secret", "hash")));
+				return null;
+			});
+			assertThat(hashing.await(5, TimeUnit.SECONDS)).isTrue();
+
+			// Единственное разрешение свободно, пока логин ждёт BCrypt
+			MockHttpServletResponse tasks = new MockHttpServletResponse();
+			filter.doFilter(request(), tasks, (req, res) -> {});
+			assertThat(tasks.getStatus()).isEqualTo(200);
+
+			release.countDown();
+			login.get(5, TimeUnit.SECONDS);
+			assertThat(loggedIn).isTrue();
+			assertThat(loginResponse.getStatus()).isEqualTo(200);
+			assertThat(registry.get("db.admission.available").gauge().value()).isEqualTo(1);
+		} finally {
+			release.countDown();
+			executor.shutdownNow();
+			hasher.shutdown();
+		}
+	}
+
+	@Test
+	void failsWhenPermitCannotBeTakenBack() throws Exception {
+		CountDownLatch inside = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			MockHttpServletResponse login = new MockHttpServletResponse();
+			filter.doFilter(new MockHttpServletRequest("POST", "/auth/login"), login, (req, res) ->
+					assertThatThrownBy(() -> DbAdmissionFilter.withoutPermit(() -> {
+						// Пока идёт хэширование, разрешение забирает другой запрос и не отдаёт
+						executor.submit(() -> {
+							filter.doFilter(request(), new MockHttpServletResponse(), (r, w) -> {
+								inside.countDown();
+								try {
+									release.await();
+								} catch (InterruptedException e) {
+									Thread.currentThread().interrupt();
+								}
+							});
+							return null;
+						});
+						try {
+							inside.await(5, TimeUnit.SECONDS);
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+						}
+						return true;
+					})).isInstanceOf(DbOverloadedException.class));
+
+			release.countDown();
+			executor.shutdown();
+			assertThat(executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+			// Не вернувший разрешение запрос не отпускает его повторно
+			assertThat(registry.get("db.admission.available").gauge().value()).isEqualTo(1);
+		} finally {
+			release.countDown();
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	void hashingOutsideTheFilterRunsWithoutPermit() {
+		assertThat(DbAdmissionFilter.withoutPermit(() -> "done")).isEqualTo("done");
+		assertThat(registry.get("db.admission.available").gauge().value()).isEqualTo(1);
+	}
+
+	private static PasswordEncoder blockingEncoder(CountDownLatch inside, CountDownLatch release) {
+		return new PasswordEncoder() {
+			@Override
+			public String encode(CharSequence rawPassword) {
+				return rawPassword.toString();
+			}
+
+			@Override
+			public boolean matches(CharSequence rawPassword, String encodedPassword) {
+				inside.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return true;
+			}
+		};
+	}
+
+	private static MockHttpServletRequest request() {
+		return new MockHttpServletRequest("GET", "/tasks");
+	}
+}
@@ -0,0 +1,182 @@
+package ru.ssau.todo.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jpa.test.autoconfigure.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.jdbc.Sql;
+
+import jakarta.persistence.EntityManagerFactory;
+import ru.ssau.todo.dto.TaskDto;
+import ru.ssau.todo.entity.Task;
+import ru.ssau.todo.entity.TaskStatus;
+import ru.ssau.todo.entity.User;
+import ru.ssau.todo.mapper.TaskMapper;
+import ru.ssau.todo.security.PrincipalCache;
+import ru.ssau.todo.security.RoleRegistry;
+
+// Списки задач не должны поднимать сущности User: иначе N+1 запрос на владельцев
+@DataJpaTest(properties = {
+		"spring.flyway.enabled=false",
+		"spring.jpa.properties.hibernate.generate_statistics=true"
+})
+// Слушатели сущностей создаются как бины и зависят от кэшей безопасности
+@Import({PrincipalCache.class, RoleRegistry.class})
+class TaskRepositoryTest {
+
+	private static final int OWNERS = 3;
+	private static final int TASKS_PER_OWNER = 2;
+
+	@Autowired
+	private TestEntityManager entityManager;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private TaskRepository taskRepository;
+
+	private Statistics statistics;
+	private Long firstTaskId;
+	private Long firstOwnerId;
+
+	@BeforeEach
+	void setUp() {
+		LocalDateTime now = LocalDateTime.now();
+		for (int u = 0; u < OWNERS; u++) {
+			User user = new User("owner" + u);
+			user.setPassword("secret");
+			entityManager.persist(user);
+			if (firstOwnerId == null) {
+				firstOwnerId = user.getId();
+			}
+			for (int t = 0; t < TASKS_PER_OWNER; t++) {
+				Task task = new Task();
+				task.setTitle("task " + u + "-" + t);
+				task.setStatus(TaskStatus.OPEN);
+				task.setCreatedBy(user);
+				task.setCreatedAt(now.minusMinutes(u * TASKS_PER_OWNER + t));
+				entityManager.persist(task);
+				if (firstTaskId == null) {
+					firstTaskId = task.getId();
+				}
+			}
+		}
+		entityManager.flush();
+		entityManager.clear();
+
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+	}
+
+	@Test
+	void taskPageDoesNotLoadOwners() {
+		List<TaskDto> page = taskRepository.findTasksByDateRangeAndUser(null, null, null, null, null, 4);
+		TaskDto last = page.get(page.size() - 1);
+		List<TaskDto> next = taskRepository.findTasksByDateRangeAndUser(
+				null, null, null, last.getCreatedAt(), last.getId(), 4);
+
+		assertThat(page).hasSize(4);
+		assertThat(next).hasSize(OWNERS * TASKS_PER_OWNER - 4);
+		assertThat(page).allSatisfy(dto -> assertThat(dto.getCreatedBy()).isNotNull());
+		assertThat(statistics.getEntityLoadCount()).isZero();
+		assertThat(statistics.getCollectionLoadCount()).isZero();
+	}
+
+	@Test
+	void exportStreamDoesNotLoadOwners() {
+		long count;
+		try (Stream<TaskDto> tasks = taskRepository.streamTasks(null, null, null)) {
+			count = tasks.count();
+		}
+
+		assertThat(count).isEqualTo(OWNERS * TASKS_PER_OWNER);
+		assertThat(statistics.getEntityLoadCount()).isZero();
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+	}
+
+	@Test
+	void singleTaskDtoDoesNotLoadOwner() {
+		Task task = taskRepository.findById(firstTaskId).orElseThrow();
+		TaskDto dto = TaskMapper.toDto(task);
+
+		assertThat(dto.getCreatedBy()).isNotNull();
+		assertThat(statistics.getEntityLoadCount()).isEqualTo(1);
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+	}
+
+	@Test
+	void persistedTasksAreInsertedInJdbcBatches() {
+		User owner = entityManager.find(User.class, firstOwnerId);
+		int count = 120;
+		for (int i = 0; i < count; i++) {
+			Task task = new Task();
+			task.setTitle("bulk " + i);
+			task.setStatus(TaskStatus.DONE);
+			task.setCreatedBy(owner);
+			task.setCreatedAt(LocalDateTime.now());
+			entityManager.persist(task);
+		}
+		entityManager.flush();
+
+		// С IDENTITY было бы по statement на каждую строку; здесь — nextval на блок id и батчи по 50
+		assertThat(statistics.getEntityInsertCount()).isEqualTo(count);
+		assertThat(statistics.getPrepareStatementCount()).isLessThan(10);
+	}
+
+	// В схеме Flyway у task.id есть DEFAULT nextval; схема Hibernate для H2 его не создаёт
+	@Test
+	@Sql(statements = "ALTER TABLE task ALTER COLUMN id SET DEFAULT NEXT VALUE FOR task_id_seq")
+	void batchInsertReturnsIdsInInputOrder() {
+		LocalDateTime now = LocalDateTime.now();
+		List<TaskDto> batch = List.of(
+				new TaskDto(null, "batch 1", TaskStatus.OPEN, firstOwnerId, now),
+				new TaskDto(null, "batch 2", TaskStatus.DONE, firstOwnerId, now),
+				new TaskDto(null, "batch 3", TaskStatus.IN_PROGRESS, firstOwnerId, now));
+
+		List<Long> ids = taskRepository.insertAll(batch);
+
+		assertThat(ids).hasSize(3).doesNotContainNull();
+		for (int i = 0; i < ids.size(); i++) {
+			assertThat(taskRepository.findById(ids.get(i)).orElseThrow().getTitle())
+					.isEqualTo(batch.get(i).getTitle());
+		}
+	}
+
+	@Test
+	void pageVersionsMatchThePageAndFollowEdits() {
+		List<TaskQueryRepository.VersionedId> before =
+				taskRepository.findPageVersions(null, null, firstOwnerId, null, null, 10);
+		List<TaskDto> page = taskRepository.findTasksByDateRangeAndUser(null, null, firstOwnerId, null, null, 10);
+		assertThat(before).extracting(TaskQueryRepository.VersionedId::id)
+				.containsExactlyElementsOf(page.stream().map(TaskDto::getId).toList());
+		assertThat(taskRepository.findVersionById(firstTaskId)).contains(0L);
+		assertThat(statistics.getEntityLoadCount()).isZero();
+
+		Task task = taskRepository.findById(firstTaskId).orElseThrow();
+		task.setStatus(TaskStatus.DONE);
+		entityManager.flush();
+
+		assertThat(taskRepository.findPageVersions(null, null, firstOwnerId, null, null, 10))
+				.isNotEqualTo(before)
+				.contains(new TaskQueryRepository.VersionedId(firstTaskId, 1));
+		assertThat(taskRepository.findVersionById(firstTaskId)).contains(1L);
+	}
+
+	@Test
+	void lockingFinderReturnsTheTask() {
+		assertThat(taskRepository.findByIdForUpdate(firstTaskId)).get()
+				.extracting(Task::getTitle).isEqualTo("task 0-0");
+		assertThat(taskRepository.findByIdForUpdate(-1L)).isEmpty();
+	}
+}
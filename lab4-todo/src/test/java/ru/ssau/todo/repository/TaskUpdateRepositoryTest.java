@@ -0,0 +1,184 @@
+package ru.ssau.todo.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Optional;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.postgresql.PostgreSQLContainer;
+
+import ru.ssau.todo.dto.TaskDto;
+import ru.ssau.todo.entity.TaskStatus;
+import ru.ssau.todo.security.PrincipalCache;
+import ru.ssau.todo.security.RoleRegistry;
+
+// Условный UPDATE написан на диалекте PostgreSQL (изменяющие CTE, FOR UPDATE, UPDATE ... FROM),
+// поэтому проверяется на настоящем PostgreSQL со схемой из миграций Flyway. Без Docker тест пропускается
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+@Import({PrincipalCache.class, RoleRegistry.class})
+class TaskUpdateRepositoryTest {
+
+	private static final Set<TaskStatus> ACTIVE = Set.of(TaskStatus.OPEN, TaskStatus.IN_PROGRESS);
+	private static final int LIMIT = 2;
+
+	@Container
+	@ServiceConnection
+	static PostgreSQLContainer postgres = new PostgreSQLContainer("postgres:16-alpine");
+
+	@Autowired
+	private TaskRepository taskRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private long ownerId;
+	private long otherId;
+
+	@BeforeEach
+	void setUp() {
+		ownerId = insertUser("owner");
+		otherId = insertUser("other");
+	}
+
+	@Test
+	void activeToActiveKeepsTheCounter() {
+		long taskId = insertTask(ownerId, TaskStatus.OPEN);
+
+		Optional<TaskDto> updated = update(taskId, ownerId, TaskStatus.IN_PROGRESS, null);
+
+		assertThat(updated).hasValueSatisfying(dto -> {
+			assertThat(dto.getStatus()).isEqualTo(TaskStatus.IN_PROGRESS);
+			assertThat(dto.getTitle()).isEqualTo("renamed");
+			assertThat(dto.getVersion()).isEqualTo(1);
+		});
+		assertThat(activeTasks(ownerId)).isEqualTo(1);
+	}
+
+	@Test
+	void activeToInactiveFreesASlot() {
+		long taskId = insertTask(ownerId, TaskStatus.OPEN);
+
+		assertThat(update(taskId, ownerId, TaskStatus.DONE, null)).isPresent();
+		assertThat(activeTasks(ownerId)).isZero();
+	}
+
+	@Test
+	void inactiveToInactiveKeepsTheCounter() {
+		long taskId = insertTask(ownerId, TaskStatus.DONE);
+
+		assertThat(update(taskId, ownerId, TaskStatus.DONE, null)).isPresent();
+		assertThat(activeTasks(ownerId)).isZero();
+	}
+
+	@Test
+	void inactiveToActiveTakesAFreeSlot() {
+		insertTask(ownerId, TaskStatus.OPEN);
+		long taskId = insertTask(ownerId, TaskStatus.DONE);
+
+		assertThat(update(taskId, ownerId, TaskStatus.OPEN, null)).isPresent();
+		assertThat(activeTasks(ownerId)).isEqualTo(LIMIT);
+	}
+
+	@Test
+	void inactiveToActiveAtTheLimitChangesNothing() {
+		insertTask(ownerId, TaskStatus.OPEN);
+		insertTask(ownerId, TaskStatus.IN_PROGRESS);
+		long taskId = insertTask(ownerId, TaskStatus.DONE);
+
+		assertThat(update(taskId, ownerId, TaskStatus.OPEN, null)).isEmpty();
+		assertThat(activeTasks(ownerId)).isEqualTo(LIMIT);
+		assertThat(status(taskId)).isEqualTo("DONE");
+		assertThat(version(taskId)).isZero();
+	}
+
+	@Test
+	void activeTaskCanBeEditedAtTheLimit() {
+		long taskId = insertTask(ownerId, TaskStatus.OPEN);
+		insertTask(ownerId, TaskStatus.OPEN);
+
+		assertThat(update(taskId, ownerId, TaskStatus.IN_PROGRESS, null)).isPresent();
+		assertThat(activeTasks(ownerId)).isEqualTo(LIMIT);
+	}
+
+	@Test
+	void staleVersionChangesNothing() {
+		long taskId = insertTask(ownerId, TaskStatus.OPEN);
+		assertThat(update(taskId, ownerId, TaskStatus.IN_PROGRESS, 0L)).isPresent();
+
+		// Переход в DONE освободил бы слот — но версия уже 1, и счётчик трогать нельзя
+		assertThat(update(taskId, ownerId, TaskStatus.DONE, 0L)).isEmpty();
+		assertThat(activeTasks(ownerId)).isEqualTo(1);
+		assertThat(status(taskId)).isEqualTo("IN_PROGRESS");
+		assertThat(version(taskId)).isEqualTo(1);
+
+		assertThat(update(taskId, ownerId, TaskStatus.DONE, 1L))
+				.hasValueSatisfying(dto -> assertThat(dto.getVersion()).isEqualTo(2));
+		assertThat(activeTasks(ownerId)).isZero();
+	}
+
+	@Test
+	void otherOwnerChangesNothing() {
+		long taskId = insertTask(ownerId, TaskStatus.OPEN);
+
+		assertThat(update(taskId, otherId, TaskStatus.DONE, null)).isEmpty();
+		assertThat(activeTasks(ownerId)).isEqualTo(1);
+		assertThat(activeTasks(otherId)).isZero();
+		assertThat(status(taskId)).isEqualTo("OPEN");
+	}
+
+	@Test
+	void missingTaskChangesNothing() {
+		assertThat(update(Long.MAX_VALUE, ownerId, TaskStatus.OPEN, null)).isEmpty();
+		assertThat(activeTasks(ownerId)).isZero();
+	}
+
+	private Optional<TaskDto> update(long taskId, long createdBy, TaskStatus status, Long version) {
+		TaskDto dto = new TaskDto();
+		dto.setId(taskId);
+		dto.setCreatedBy(createdBy);
+		dto.setTitle("renamed");
+		dto.setStatus(status);
+		dto.setVersion(version);
+		return taskRepository.updateIfCurrent(dto, ACTIVE, LIMIT);
+	}
+
+	private long insertUser(String username) {
+		return jdbcTemplate.queryForObject(
+				"INSERT INTO users (username, password) VALUES (?, 'secret') RETURNING id",
+				Long.class, username);
+	}
+
+	// Счётчик ведём так же, как TaskService при создании задачи
+	private long insertTask(long createdBy, TaskStatus status) {
+		if (ACTIVE.contains(status)) {
+			jdbcTemplate.update("UPDATE users SET active_tasks = active_tasks + 1 WHERE id = ?", createdBy);
+		}
+		return jdbcTemplate.queryForObject(
+				"INSERT INTO task (title, status, created_by, created_at) VALUES ('task', ?, ?, now()) RETURNING id",
+				Long.class, status.name(), createdBy);
+	}
+
+	private int activeTasks(long userId) {
+		return jdbcTemplate.queryForObject("SELECT active_tasks FROM users WHERE id = ?", Integer.class, userId);
+	}
+
+	private String status(long taskId) {
+		return jdbcTemplate.queryForObject("SELECT status FROM task WHERE id = ?", String.class, taskId);
+	}
+
+	private long version(long taskId) {
+		return jdbcTemplate.queryForObject("SELECT version FROM task WHERE id = ?", Long.class, taskId);
+	}
+}
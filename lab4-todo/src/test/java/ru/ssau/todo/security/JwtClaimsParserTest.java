@@ -0,0 +1,73 @@
+package ru.ssau.todo.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.core.JsonFactory;
+
+class JwtClaimsParserTest {
+
+	private final JwtClaimsParser parser = new JwtClaimsParser(new JsonFactory());
+
+	@Test
+	void readsAllKnownClaims() throws IOException {
+		JwtClaims claims = parse("{\"userId\":7,\"username\":\"alice\",\"rm\":6,\"iat\":100,\"exp\":200,\"jti\":-42}");
+
+		assertThat(claims).isEqualTo(new JwtClaims(7, "alice", 6, 100, 200, -42));
+		assertThat(claims.isAccessToken()).isTrue();
+	}
+
+	@Test
+	void unknownClaimsAreSkippedWithTheirChildren() throws IOException {
+		JwtClaims claims = parse("{\"aud\":{\"exp\":1,\"nested\":[{\"userId\":99}]},\"userId\":7,"
+				+ "\"scopes\":[[\"rm\",5],{\"jti\":3}],\"exp\":200,\"note\":null,\"flag\":true}");
+
+		assertThat(claims.userId()).isEqualTo(7);
+		assertThat(claims.exp()).isEqualTo(200);
+		assertThat(claims.roleMask()).isEqualTo(JwtClaims.NO_ROLES);
+		assertThat(claims.jti()).isEqualTo(JwtClaims.NO_JTI);
+	}
+
+	@Test
+	void missingUserIdIsRejected() {
+		assertThatThrownBy(() -> parse("{\"exp\":200,\"rm\":1}"))
+				.isInstanceOf(IOException.class)
+				.hasMessageContaining("userId");
+	}
+
+	@Test
+	void missingExpMakesTheTokenExpired() throws IOException {
+		assertThat(parse("{\"userId\":7,\"rm\":1}").exp()).isEqualTo(-1);
+	}
+
+	@Test
+	void tokenWithoutRolesIsARefreshToken() throws IOException {
+		assertThat(parse("{\"userId\":7,\"exp\":200}").isAccessToken()).isFalse();
+	}
+
+	@Test
+	void legacyRolesListIsAnAccessTokenWithoutRoles() throws IOException {
+		JwtClaims claims = parse("{\"userId\":7,\"roles\":[\"ROLE_ADMIN\",\"ROLE_USER\"],\"exp\":200}");
+
+		assertThat(claims.isAccessToken()).isTrue();
+		assertThat(claims.roleMask()).isZero();
+	}
+
+	@Test
+	void malformedJsonIsAnIOException() {
+		assertThatThrownBy(() -> parse("{\"userId\":7,")).isInstanceOf(IOException.class);
+		assertThatThrownBy(() -> parse("[1,2]")).isInstanceOf(IOException.class);
+		assertThatThrownBy(() -> parse("{\"userId\":\"seven\"}")).isInstanceOf(IOException.class);
+		assertThatThrownBy(() -> parse("")).isInstanceOf(IOException.class);
+	}
+
+	private JwtClaims parse(String json) throws IOException {
+		return parser.parse(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+	}
+}
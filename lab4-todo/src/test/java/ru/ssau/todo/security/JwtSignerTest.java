@@ -0,0 +1,118 @@
+package ru.ssau.todo.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.junit.jupiter.api.Test;
+
+class JwtSignerTest {
+
+	private static final String SECRET = "0123456789abcdef0123456789abcdef";
+
+	private final JwtSigner signer = new JwtSigner(SECRET);
+
+	@Test
+	void signedTokenVerifies() throws Exception {
+		byte[] payload = payload("{\"userId\":1}");
+
+		String token = signer.sign(payload);
+
+		assertThat(token).isEqualTo(new String(payload, StandardCharsets.US_ASCII) + "." + reference(payload));
+		assertThat(signer.verify(token.getBytes(StandardCharsets.US_ASCII), payload.length)).isTrue();
+	}
+
+	@Test
+	void tamperedTokenDoesNotVerify() {
+		byte[] payload = payload("{\"userId\":1}");
+		byte[] token = signer.sign(payload).getBytes(StandardCharsets.US_ASCII);
+
+		byte[] badSignature = token.clone();
+		badSignature[badSignature.length - 1] ^= 1;
+		byte[] badPayload = token.clone();
+		badPayload[0] ^= 1;
+
+		assertThat(signer.verify(badSignature, payload.length)).isFalse();
+		assertThat(signer.verify(badPayload, payload.length)).isFalse();
+		assertThat(new JwtSigner(SECRET.replace('0', '1')).verify(token, payload.length)).isFalse();
+	}
+
+	@Test
+	void signatureOfWrongLengthIsRejectedWithoutThrowing() {
+		byte[] payload = payload("{\"userId\":1}");
+		byte[] token = signer.sign(payload).getBytes(StandardCharsets.US_ASCII);
+
+		byte[] truncated = new byte[token.length - 1];
+		System.arraycopy(token, 0, truncated, 0, truncated.length);
+		byte[] extended = new byte[token.length + 1];
+		System.arraycopy(token, 0, extended, 0, token.length);
+		extended[token.length] = 'A';
+
+		assertThat(signer.verify(truncated, payload.length)).isFalse();
+		assertThat(signer.verify(extended, payload.length)).isFalse();
+		assertThat(signer.verify(payload, payload.length)).isFalse();
+	}
+
+	@Test
+	void shortSecretFailsFast() {
+		assertThatThrownBy(() -> new JwtSigner("x".repeat(31))).isInstanceOf(IllegalStateException.class);
+		assertThatThrownBy(() -> new JwtSigner("")).isInstanceOf(IllegalStateException.class);
+		assertThatThrownBy(() -> new JwtSigner(null)).isInstanceOf(IllegalStateException.class);
+	}
+
+	@Test
+	void concurrentSigningBeyondThePoolStaysCorrect() throws Exception {
+		// Потоков больше, чем мест в пуле: часть экземпляров создаётся сверх пула и не возвращается
+		int threads = signer.poolCapacity() * 2;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		CountDownLatch start = new CountDownLatch(1);
+		try {
+			List<Future<Boolean>> results = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				int id = t;
+				results.add(executor.submit(() -> {
+					start.await();
+					for (int i = 0; i < 200; i++) {
+						byte[] payload = payload("{\"userId\":" + id + ",\"n\":" + i + "}");
+						String token = signer.sign(payload);
+						if (!token.endsWith("." + reference(payload))
+								|| !signer.verify(token.getBytes(StandardCharsets.US_ASCII), payload.length)) {
+							return false;
+						}
+					}
+					return true;
+				}));
+			}
+			start.countDown();
+			for (Future<Boolean> result : results) {
+				assertThat(result.get(30, TimeUnit.SECONDS)).isTrue();
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		assertThat(signer.idleEngines()).isBetween(1, signer.poolCapacity());
+	}
+
+	private static byte[] payload(String json) {
+		return Base64.getUrlEncoder().withoutPadding()
+				.encode(json.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static String reference(byte[] encodedPayload) throws Exception {
+		Mac mac = Mac.getInstance("HmacSHA256");
+		mac.init(new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(mac.doFinal(encodedPayload));
+	}
+}
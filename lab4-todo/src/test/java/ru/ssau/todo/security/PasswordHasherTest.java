@@ -0,0 +1,92 @@
+package ru.ssau.todo.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ru.ssau.todo.exception.HashingOverloadedException;
+
+class PasswordHasherTest {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+	@Test
+	void detectsHashesWithAnotherCost() {
+		PasswordHasher hasher = new PasswordHasher(new BCryptPasswordEncoder(5), registry,
+				5, 1, 4, Duration.ofSeconds(5), Duration.ofSeconds(1));
+		String current = hasher.encode("secret");
+		String old = new BCryptPasswordEncoder(4).encode("secret");
+
+		assertThat(hasher.matches("secret", old)).isTrue();
+		assertThat(hasher.needsRehash(old)).isTrue();
+		assertThat(hasher.needsRehash(current)).isFalse();
+		assertThat(registry.get("auth.password.hash").tag("operation", "verify").timer().count()).isEqualTo(1);
+		hasher.shutdown();
+	}
+
+	@Test
+	void rejectsWhenQueueIsFull() throws Exception {
+		CountDownLatch inside = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		PasswordHasher hasher = new PasswordHasher(blockingEncoder(inside, release), registry,
+				10, 1, 1, Duration.ofSeconds(5), Duration.ofSeconds(2));
+		ExecutorService callers = Executors.newFixedThreadPool(2);
+		try {
+			// Первый занимает единственный поток пула, второй — единственное место в очереди
+			Future<Boolean> running = callers.submit(() -> hasher.matches("a", "b"));
+			assertThat(inside.await(5, TimeUnit.SECONDS)).isTrue();
+			Future<Boolean> queued = callers.submit(() -> hasher.matches("a", "b"));
+			while (registry.get("auth.hashing.queue").gauge().value() < 1) {
+				Thread.onSpinWait();
+			}
+
+			assertThatThrownBy(() -> hasher.matches("a", "b"))
+					.isInstanceOf(HashingOverloadedException.class)
+					.extracting(e -> ((HashingOverloadedException) e).getRetryAfter())
+					.isEqualTo(Duration.ofSeconds(2));
+			// Неизвестное имя при перегрузке получает тот же отказ, что и известное
+			assertThatThrownBy(() -> hasher.verifyDummy("a"))
+					.isInstanceOf(HashingOverloadedException.class);
+			assertThat(registry.get("auth.hashing.rejected").counter().count()).isEqualTo(2);
+
+			release.countDown();
+			assertThat(running.get(5, TimeUnit.SECONDS)).isTrue();
+			assertThat(queued.get(5, TimeUnit.SECONDS)).isTrue();
+		} finally {
+			release.countDown();
+			callers.shutdownNow();
+			hasher.shutdown();
+		}
+	}
+
+	private static PasswordEncoder blockingEncoder(CountDownLatch inside, CountDownLatch release) {
+		return new PasswordEncoder() {
+			@Override
+			public String encode(CharSequence rawPassword) {
+				return rawPassword.toString();
+			}
+
+			@Override
+			public boolean matches(CharSequence rawPassword, String encodedPassword) {
+				inside.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return true;
+			}
+		};
+	}
+}
@@ -0,0 +1,80 @@
+package ru.ssau.todo.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongFunction;
+
+import org.junit.jupiter.api.Test;
+
+import ru.ssau.todo.security.PrincipalCache.CachedPrincipal;
+
+class PrincipalCacheTest {
+
+	private final AtomicInteger loads = new AtomicInteger();
+
+	@Test
+	void hitDoesNotCallTheLoader() {
+		PrincipalCache cache = new PrincipalCache(Duration.ofMinutes(5), 10);
+
+		CachedPrincipal first = cache.get(1, loader());
+		CachedPrincipal second = cache.get(1, loader());
+
+		assertThat(second).isSameAs(first);
+		assertThat(loads).hasValue(1);
+	}
+
+	@Test
+	void expiredEntryIsLoadedAgain() throws InterruptedException {
+		PrincipalCache cache = new PrincipalCache(Duration.ofMillis(20), 10);
+		cache.get(1, loader());
+
+		Thread.sleep(40);
+
+		assertThat(cache.get(1, loader()).username()).isEqualTo("user1");
+		assertThat(loads).hasValue(2);
+	}
+
+	@Test
+	void invalidatedEntryIsLoadedAgain() {
+		PrincipalCache cache = new PrincipalCache(Duration.ofMinutes(5), 10);
+		cache.get(1, loader());
+		cache.get(2, loader());
+
+		cache.invalidate(1);
+
+		cache.get(1, loader());
+		cache.get(2, loader());
+		assertThat(loads).hasValue(3);
+	}
+
+	@Test
+	void sizeNeverExceedsTheLimit() {
+		PrincipalCache cache = new PrincipalCache(Duration.ofMinutes(5), 3);
+
+		for (long id = 1; id <= 10; id++) {
+			cache.get(id, loader());
+			assertThat(cache.size()).isLessThanOrEqualTo(3);
+		}
+		// Последний загруженный всегда остаётся в кэше
+		cache.get(10, loader());
+		assertThat(loads).hasValue(10);
+	}
+
+	@Test
+	void missingUserIsNotCached() {
+		PrincipalCache cache = new PrincipalCache(Duration.ofMinutes(5), 10);
+
+		assertThat(cache.get(1, id -> null)).isNull();
+		assertThat(cache.size()).isZero();
+	}
+
+	private LongFunction<CachedPrincipal> loader() {
+		return id -> {
+			loads.incrementAndGet();
+			return new CachedPrincipal("user" + id, List.of());
+		};
+	}
+}
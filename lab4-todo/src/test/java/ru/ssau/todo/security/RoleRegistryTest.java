@@ -0,0 +1,72 @@
+package ru.ssau.todo.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import ru.ssau.todo.entity.Role;
+import ru.ssau.todo.repository.RoleRepository;
+
+class RoleRegistryTest {
+
+	private final RoleRepository roleRepository = Mockito.mock(RoleRepository.class);
+
+	@Test
+	void unknownRoleGetsNoBitWithoutReloading() {
+		Mockito.when(roleRepository.findAll()).thenReturn(List.of(role(1, "ROLE_USER")));
+		RoleRegistry registry = new RoleRegistry(roleRepository, Duration.ofMinutes(1));
+		registry.reload();
+
+		for (int i = 0; i < 100; i++) {
+			assertThat(registry.toMask(List.of(role(1, "ROLE_USER"), role(2, "ROLE_ADMIN")))).isEqualTo(1L << 1);
+		}
+		Mockito.verify(roleRepository, Mockito.times(1)).findAll();
+	}
+
+	@Test
+	void roleOutsideTheMaskIsIgnored() {
+		Mockito.when(roleRepository.findAll()).thenReturn(List.of(role(1, "ROLE_USER"), role(63, "ROLE_EXTRA")));
+		RoleRegistry registry = new RoleRegistry(roleRepository, Duration.ofMinutes(1));
+		registry.reload();
+
+		assertThat(registry.toMask(List.of(role(1, "ROLE_USER"), role(63, "ROLE_EXTRA")))).isEqualTo(1L << 1);
+		assertThat(registry.names(1L << 1)).containsExactly("USER");
+	}
+
+	@Test
+	void staleRegistryReloadsAtMostOncePerInterval() {
+		Mockito.when(roleRepository.findAll())
+				.thenReturn(List.of(role(1, "ROLE_USER")))
+				.thenThrow(new IllegalStateException("database is down"));
+		RoleRegistry registry = new RoleRegistry(roleRepository, Duration.ofMinutes(1));
+		registry.reload();
+
+		registry.markStale();
+		for (int i = 0; i < 100; i++) {
+			assertThat(registry.names(1L << 1)).containsExactly("USER");
+		}
+		// Последняя перезагрузка была только что — до конца интервала БД не трогаем
+		Mockito.verify(roleRepository, Mockito.times(1)).findAll();
+	}
+
+	@Test
+	void failedReloadKeepsThePreviousSnapshot() {
+		Mockito.when(roleRepository.findAll())
+				.thenThrow(new IllegalStateException("database is down"))
+				.thenReturn(List.of(role(1, "ROLE_USER")));
+		RoleRegistry registry = new RoleRegistry(roleRepository, Duration.ZERO);
+
+		assertThat(registry.names(1L << 1)).isEmpty();
+		assertThat(registry.names(1L << 1)).containsExactly("USER");
+	}
+
+	private static Role role(long id, String name) {
+		Role role = new Role(name);
+		role.setId(id);
+		return role;
+	}
+}
@@ -0,0 +1,73 @@
+package ru.ssau.todo.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class TokenCacheTest {
+
+	private static final long NOW = 1_000_000;
+
+	private final TokenCache<String> cache = new TokenCache<>(2);
+
+	@Test
+	void hitReturnsTheCheckedValue() {
+		cache.put("sig", "payload", "claims", NOW + 60, NOW);
+
+		assertThat(cache.get("sig", "payload", NOW)).isEqualTo("claims");
+		assertThat(cache.getHits()).isEqualTo(1);
+	}
+
+	@Test
+	void expiredEntryIsNotServedAndIsDropped() {
+		cache.put("sig", "payload", "claims", NOW + 60, NOW);
+
+		assertThat(cache.get("sig", "payload", NOW + 60)).isNull();
+		assertThat(cache.size()).isZero();
+		assertThat(cache.getMisses()).isEqualTo(1);
+		assertThat(cache.getEvictions()).isEqualTo(1);
+	}
+
+	@Test
+	void alreadyExpiredTokenIsNotCached() {
+		cache.put("sig", "payload", "claims", NOW, NOW);
+
+		assertThat(cache.size()).isZero();
+	}
+
+	@Test
+	void sameSignatureWithAnotherPayloadIsRejected() {
+		cache.put("sig", "payload", "claims", NOW + 60, NOW);
+
+		// Подпись от одного токена, тело — от другого: это не тот токен, что проверяли
+		assertThat(cache.get("sig", "forged-payload", NOW)).isNull();
+		assertThat(cache.getMisses()).isEqualTo(1);
+		// Настоящий токен по-прежнему в кэше
+		assertThat(cache.get("sig", "payload", NOW)).isEqualTo("claims");
+	}
+
+	@Test
+	void expiredEntriesAreEvictedFirstAtCapacity() {
+		cache.put("old", "p1", "old", NOW + 10, NOW);
+		cache.put("live", "p2", "live", NOW + 600, NOW);
+
+		cache.put("new", "p3", "new", NOW + 600, NOW + 20);
+
+		assertThat(cache.size()).isEqualTo(2);
+		assertThat(cache.get("live", "p2", NOW + 20)).isEqualTo("live");
+		assertThat(cache.get("new", "p3", NOW + 20)).isEqualTo("new");
+		assertThat(cache.getEvictions()).isEqualTo(1);
+	}
+
+	@Test
+	void liveEntryIsEvictedWhenNothingHasExpired() {
+		cache.put("a", "p1", "a", NOW + 600, NOW);
+		cache.put("b", "p2", "b", NOW + 600, NOW);
+
+		cache.put("c", "p3", "c", NOW + 600, NOW);
+
+		assertThat(cache.size()).isEqualTo(2);
+		assertThat(cache.get("c", "p3", NOW)).isEqualTo("c");
+		assertThat(cache.getEvictions()).isEqualTo(1);
+	}
+}
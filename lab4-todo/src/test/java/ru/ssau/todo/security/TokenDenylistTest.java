@@ -0,0 +1,82 @@
+package ru.ssau.todo.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Instant;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class TokenDenylistTest {
+
+	private final EmbeddedDatabase database = new EmbeddedDatabaseBuilder()
+			.setType(EmbeddedDatabaseType.H2)
+			.generateUniqueName(true)
+			.build();
+	private final NamedParameterJdbcTemplate jdbcTemplate = new NamedParameterJdbcTemplate(database);
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+	TokenDenylistTest() {
+		jdbcTemplate.getJdbcTemplate().execute(
+				"CREATE TABLE revoked_access_token (jti BIGINT PRIMARY KEY, user_id BIGINT NOT NULL, "
+						+ "expires_at TIMESTAMP(6) NOT NULL)");
+	}
+
+	@AfterEach
+	void shutdown() {
+		database.shutdown();
+	}
+
+	@Test
+	void revokedTokensSurviveRestart() {
+		long exp = Instant.now().plusSeconds(600).getEpochSecond();
+		TokenDenylist denylist = newDenylist();
+		denylist.load();
+		for (long jti = 1; jti <= 1000; jti++) {
+			denylist.revoke(claims(jti, exp));
+		}
+
+		TokenDenylist restarted = newDenylist();
+		restarted.load();
+
+		assertThat(restarted.size()).isEqualTo(1000);
+		for (long jti = 1; jti <= 1000; jti++) {
+			assertThat(restarted.isRevoked(jti)).isTrue();
+		}
+		for (long jti = 1001; jti <= 11_000; jti++) {
+			assertThat(restarted.isRevoked(jti)).isFalse();
+		}
+		double falsePositives = registry.get("auth.denylist.checks").tag("result", "false_positive").counter().count();
+		assertThat(falsePositives).isLessThan(50);
+	}
+
+	@Test
+	void expiredEntriesArePurged() {
+		long now = Instant.now().getEpochSecond();
+		TokenDenylist denylist = newDenylist();
+		denylist.load();
+		denylist.revoke(claims(1, now - 1));
+		denylist.revoke(claims(2, now + 600));
+
+		denylist.purgeExpired();
+
+		assertThat(denylist.isRevoked(1)).isFalse();
+		assertThat(denylist.isRevoked(2)).isTrue();
+		assertThat(jdbcTemplate.getJdbcTemplate()
+				.queryForObject("SELECT COUNT(*) FROM revoked_access_token", Integer.class)).isEqualTo(1);
+	}
+
+	private TokenDenylist newDenylist() {
+		return new TokenDenylist(jdbcTemplate, registry, 1000, 0.001);
+	}
+
+	private static JwtClaims claims(long jti, long exp) {
+		return new JwtClaims(42, null, 1, exp - 900, exp, jti);
+	}
+}
@@ -0,0 +1,83 @@
+package ru.ssau.todo.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jpa.test.autoconfigure.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import ru.ssau.todo.entity.Role;
+import ru.ssau.todo.entity.User;
+import ru.ssau.todo.security.PrincipalCache.CachedPrincipal;
+
+// Смена ролей пишет только user_roles — закэшированный пользователь всё равно должен сброситься
+@DataJpaTest(properties = "spring.flyway.enabled=false")
+@Import({PrincipalCache.class, RoleRegistry.class, UserRolesInvalidationListener.class})
+class UserRolesInvalidationListenerTest {
+
+	@Autowired
+	private TestEntityManager entityManager;
+
+	@Autowired
+	private PrincipalCache principalCache;
+
+	private Long userId;
+	private Role admin;
+
+	@BeforeEach
+	void setUp() {
+		// Контекст общий для тестов, кэш — тоже
+		principalCache.clear();
+		Role user = entityManager.persist(new Role("ROLE_USER"));
+		admin = entityManager.persist(new Role("ROLE_ADMIN"));
+		User account = new User("alice");
+		account.setPassword("secret");
+		account.setRoles(new ArrayList<>(List.of(user)));
+		userId = entityManager.persistAndGetId(account, Long.class);
+		entityManager.flush();
+		entityManager.clear();
+	}
+
+	@Test
+	void grantingRoleEvictsCachedPrincipal() {
+		cachePrincipal();
+
+		entityManager.find(User.class, userId).getRoles().add(entityManager.find(Role.class, admin.getId()));
+		entityManager.flush();
+
+		assertThat(principalCache.size()).isZero();
+	}
+
+	@Test
+	void replacingRolesEvictsCachedPrincipal() {
+		cachePrincipal();
+
+		entityManager.find(User.class, userId).setRoles(new ArrayList<>(List.of(entityManager.find(Role.class, admin.getId()))));
+		entityManager.flush();
+
+		assertThat(principalCache.size()).isZero();
+	}
+
+	@Test
+	void unrelatedChangeKeepsOtherUsersCached() {
+		cachePrincipal();
+		User other = new User("bob");
+		other.setPassword("secret");
+		other.setRoles(new ArrayList<>(List.of(entityManager.find(Role.class, admin.getId()))));
+		entityManager.persist(other);
+		entityManager.flush();
+
+		assertThat(principalCache.size()).isEqualTo(1);
+	}
+
+	private void cachePrincipal() {
+		principalCache.get(userId, id -> new CachedPrincipal("alice", List.of()));
+		assertThat(principalCache.size()).isEqualTo(1);
+	}
+}
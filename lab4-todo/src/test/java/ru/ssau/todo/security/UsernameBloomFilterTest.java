@@ -0,0 +1,45 @@
+package ru.ssau.todo.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ru.ssau.todo.repository.UserRepository;
+
+class UsernameBloomFilterTest {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+	@Test
+	void knownNamesAreNeverRejected() {
+		UserRepository repository = Mockito.mock(UserRepository.class);
+		Mockito.when(repository.streamAllUsernames())
+				.thenReturn(Stream.iterate(0, i -> i + 1).limit(1000).map(i -> "user" + i));
+		UsernameBloomFilter filter = new UsernameBloomFilter(repository, registry, 2000, 0.01);
+
+		// До загрузки фильтр пропускает всех
+		assertThat(filter.mightContain("stranger")).isTrue();
+
+		filter.load();
+		filter.add("registered-after-start");
+		for (int i = 0; i < 1000; i++) {
+			assertThat(filter.mightContain("user" + i)).isTrue();
+		}
+		assertThat(filter.mightContain("registered-after-start")).isTrue();
+
+		int falsePositives = 0;
+		for (int i = 0; i < 10_000; i++) {
+			if (filter.mightContain("unknown" + i)) {
+				falsePositives++;
+			}
+		}
+		assertThat(falsePositives).isLessThan(300);
+		assertThat(registry.get("auth.username_filter.lookups").tag("result", "absent").counter().count())
+				.isEqualTo(10_000 - falsePositives);
+		assertThat(filter.expectedFalsePositiveRate()).isLessThan(0.01);
+	}
+}
@@ -0,0 +1,77 @@
+package ru.ssau.todo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+import ru.ssau.todo.exception.InvalidTokenException;
+import ru.ssau.todo.exception.TokenReuseException;
+import ru.ssau.todo.security.InMemoryRefreshTokenStore;
+
+class RefreshTokenServiceTest {
+
+	private final InMemoryRefreshTokenStore store = new InMemoryRefreshTokenStore();
+	private final RefreshTokenService service = new RefreshTokenService(store, 3600);
+
+	@Test
+	void everyUseRotatesTheToken() {
+		String first = service.issue(7);
+
+		RefreshTokenService.Rotation rotation = service.rotate(first);
+
+		assertThat(rotation.userId()).isEqualTo(7);
+		assertThat(rotation.refreshToken()).isNotEqualTo(first);
+		assertThat(service.rotate(rotation.refreshToken()).userId()).isEqualTo(7);
+	}
+
+	@Test
+	void reuseRevokesTheWholeFamily() {
+		String first = service.issue(7);
+		String second = service.rotate(first).refreshToken();
+		String otherSession = service.issue(7);
+
+		assertThatThrownBy(() -> service.rotate(first)).isInstanceOf(TokenReuseException.class);
+		assertThatThrownBy(() -> service.rotate(second)).isInstanceOf(InvalidTokenException.class);
+		// Другие сессии пользователя не затронуты
+		assertThat(service.rotate(otherSession).userId()).isEqualTo(7);
+	}
+
+	@Test
+	void rotationNeverOutlivesTheFamily() {
+		Instant familyExpiresAt = Instant.ofEpochSecond(Instant.now().getEpochSecond() + 10);
+		UUID familyId = UUID.randomUUID();
+		store.startFamily(familyId, 7, familyExpiresAt);
+		store.addToken(RefreshTokenService.hash("old"), familyId, 7, familyExpiresAt);
+
+		String next = service.rotate("old").refreshToken();
+
+		// ttl сервиса — час, но новый токен ограничен сроком сессии
+		assertThat(store.find(RefreshTokenService.hash(next)).orElseThrow().expiresAt())
+				.isEqualTo(familyExpiresAt);
+	}
+
+	@Test
+	void logoutRevokesSessionAndUnknownTokensAreRejected() {
+		String token = service.issue(7);
+		service.revoke(token);
+
+		assertThatThrownBy(() -> service.rotate(token)).isInstanceOf(InvalidTokenException.class);
+		assertThatThrownBy(() -> service.rotate("not-a-token")).isInstanceOf(InvalidTokenException.class);
+	}
+
+	@Test
+	void sweeperRemovesOnlyExpiredTokens() {
+		service.issue(1);
+		service.rotate(service.issue(2));
+		assertThat(store.size()).isEqualTo(3);
+
+		assertThat(store.purgeExpired(Instant.now())).isZero();
+		assertThat(store.purgeExpired(Instant.now().plus(Duration.ofHours(2)))).isEqualTo(3);
+		assertThat(store.size()).isZero();
+	}
+}
@@ -0,0 +1,35 @@
+package ru.ssau.todo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+import ru.ssau.todo.dto.TaskEvent;
+
+class TaskEventBufferTest {
+
+	@Test
+	void overflowEvictsOldestAndCountsLosses() {
+		TaskEventBuffer buffer = new TaskEventBuffer(3);
+		for (long id = 1; id <= 5; id++) {
+			buffer.offer(TaskEvent.deleted(id, 7L));
+		}
+
+		assertThat(buffer.drain()).extracting(TaskEvent::taskId).containsExactly(3L, 4L, 5L);
+		assertThat(buffer.isEmpty()).isFalse();
+		assertThat(buffer.takeDropped()).isEqualTo(2);
+		assertThat(buffer.isEmpty()).isTrue();
+	}
+
+	@Test
+	void drainKeepsOrderAcrossWrapAround() {
+		TaskEventBuffer buffer = new TaskEventBuffer(2);
+		buffer.offer(TaskEvent.deleted(1L, 7L));
+		buffer.drain();
+		assertThat(buffer.offer(TaskEvent.deleted(2L, 7L))).isFalse();
+		assertThat(buffer.offer(TaskEvent.deleted(3L, 7L))).isFalse();
+
+		assertThat(buffer.drain()).extracting(TaskEvent::taskId).containsExactly(2L, 3L);
+		assertThat(buffer.takeDropped()).isZero();
+	}
+}
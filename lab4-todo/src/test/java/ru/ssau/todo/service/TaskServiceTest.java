@@ -0,0 +1,105 @@
+package ru.ssau.todo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import ru.ssau.todo.dto.TaskDto;
+import ru.ssau.todo.dto.TaskFilterDto;
+import ru.ssau.todo.entity.Task;
+import ru.ssau.todo.entity.TaskStatus;
+import ru.ssau.todo.entity.User;
+import ru.ssau.todo.exception.TaskBusinessException;
+import ru.ssau.todo.repository.TaskQueryRepository;
+import ru.ssau.todo.repository.TaskRepository;
+import ru.ssau.todo.repository.UserRepository;
+import tools.jackson.databind.json.JsonMapper;
+
+// Успешное изменение — один UPDATE; при отказе причина определяется по текущей строке
+class TaskServiceTest {
+
+	private final TaskRepository taskRepository = Mockito.mock(TaskRepository.class);
+	private final UserRepository userRepository = Mockito.mock(UserRepository.class);
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final TaskService service = new TaskService(taskRepository, userRepository,
+			JsonMapper.builder().build(), Validation.buildDefaultValidatorFactory().getValidator(),
+			registry, Mockito.mock(TaskEventBus.class), 50, 200, 1000);
+
+	@Test
+	void successfulUpdateIsASingleStatement() {
+		TaskDto request = new TaskDto(1L, "title", TaskStatus.DONE, 7L, null, 3L);
+		TaskDto updated = new TaskDto(1L, "title", TaskStatus.DONE, 7L, LocalDateTime.now(), 4L);
+		Mockito.when(taskRepository.updateIfCurrent(any(), any(), anyInt())).thenReturn(Optional.of(updated));
+
+		assertThat(service.updateTask(request).getVersion()).isEqualTo(4L);
+		Mockito.verify(taskRepository, Mockito.never()).findById(any());
+		Mockito.verifyNoInteractions(userRepository);
+	}
+
+	@Test
+	void staleVersionIsAConflict() {
+		stubRejectedUpdate(existingTask(7L, 5L));
+
+		assertThatThrownBy(() -> service.updateTask(new TaskDto(1L, "title", TaskStatus.DONE, 7L, null, 4L)))
+				.isInstanceOf(ObjectOptimisticLockingFailureException.class);
+	}
+
+	@Test
+	void foreignOwnerAndExhaustedLimitAreBusinessErrors() {
+		stubRejectedUpdate(existingTask(7L, 5L));
+
+		assertThatThrownBy(() -> service.updateTask(new TaskDto(1L, "title", TaskStatus.OPEN, 8L, null, 5L)))
+				.isInstanceOf(TaskBusinessException.class)
+				.hasMessageContaining("owner");
+		assertThatThrownBy(() -> service.updateTask(new TaskDto(1L, "title", TaskStatus.OPEN, 7L, null, 5L)))
+				.isInstanceOf(TaskBusinessException.class)
+				.hasMessageContaining("active tasks");
+		assertThat(registry.get("tasks.active_limit.rejections").tag("operation", "update").counter().count())
+				.isEqualTo(1);
+	}
+
+	@Test
+	void conditionalListCheckAgreesWithThePageETag() {
+		TaskDto first = new TaskDto(2L, "b", TaskStatus.OPEN, 7L, LocalDateTime.now(), 1L);
+		TaskDto second = new TaskDto(1L, "a", TaskStatus.OPEN, 7L, LocalDateTime.now(), 0L);
+		Mockito.when(taskRepository.findTasksByDateRangeAndUser(any(), any(), any(), any(), any(), anyInt()))
+				.thenReturn(List.of(first, second));
+		Mockito.when(taskRepository.findPageVersions(any(), any(), any(), any(), any(), anyInt()))
+				.thenReturn(List.of(new TaskQueryRepository.VersionedId(2, 1), new TaskQueryRepository.VersionedId(1, 0)));
+
+		TaskFilterDto filter = new TaskFilterDto();
+		String pageETag = service.findAll(filter).getETag();
+
+		assertThat(service.findPageETag(filter)).isEqualTo(pageETag).startsWith("W/");
+		Mockito.when(taskRepository.findPageVersions(any(), any(), any(), any(), any(), anyInt()))
+				.thenReturn(List.of(new TaskQueryRepository.VersionedId(2, 2), new TaskQueryRepository.VersionedId(1, 0)));
+		assertThat(service.findPageETag(filter)).isNotEqualTo(pageETag);
+	}
+
+	private void stubRejectedUpdate(Task existing) {
+		Mockito.when(taskRepository.updateIfCurrent(any(), any(), anyInt())).thenReturn(Optional.empty());
+		Mockito.when(taskRepository.findById(existing.getId())).thenReturn(Optional.of(existing));
+	}
+
+	private static Task existingTask(Long ownerId, Long version) {
+		User owner = new User("owner");
+		owner.setId(ownerId);
+		Task task = new Task();
+		task.setId(1L);
+		task.setStatus(TaskStatus.DONE);
+		task.setCreatedBy(owner);
+		task.setVersion(version);
+		return task;
+	}
+}
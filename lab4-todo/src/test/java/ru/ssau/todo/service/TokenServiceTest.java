@@ -0,0 +1,63 @@
+package ru.ssau.todo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ru.ssau.todo.exception.InvalidTokenException;
+import ru.ssau.todo.exception.TokenExpiredException;
+import ru.ssau.todo.security.JwtSigner;
+
+class TokenServiceTest {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final JwtSigner signer = new JwtSigner("x".repeat(32));
+	private final TokenService tokenService = new TokenService(signer, registry, 100, false);
+
+	@Test
+	void validationsAreTimedByOutcome() {
+		String token = tokenService.generateToken(tokenService.createAccessPayload(1L, "alice", 1L));
+		tokenService.validateToken(token);
+		tokenService.validateToken(token);
+
+		long past = Instant.now().getEpochSecond() - 60;
+		String expired = tokenService.generateToken(Map.of("userId", 1L, "iat", past - 60, "exp", past));
+		assertThatThrownBy(() -> tokenService.validateToken(expired))
+				.isInstanceOf(TokenExpiredException.class);
+
+		String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+		assertThatThrownBy(() -> tokenService.validateToken(tampered))
+				.isInstanceOf(InvalidTokenException.class);
+
+		assertThat(validations("valid")).isEqualTo(2);
+		assertThat(validations("expired")).isEqualTo(1);
+		assertThat(validations("invalid")).isEqualTo(1);
+		// Второй вызов с тем же токеном обслужен кэшем
+		assertThat(registry.get("auth.token.cache.requests").tag("result", "hit").functionCounter().count())
+				.isEqualTo(1);
+	}
+
+	@Test
+	void signedButMalformedPayloadIsAnInvalidToken() {
+		for (String json : new String[] {"{\"userId\":1,", "not json", "{\"exp\":4102444800}", "{\"userId\":[1]}"}) {
+			String token = signer.sign(Base64.getUrlEncoder().withoutPadding()
+					.encode(json.getBytes(StandardCharsets.UTF_8)));
+			assertThatThrownBy(() -> tokenService.validateToken(token))
+					.as(json)
+					.isInstanceOf(InvalidTokenException.class)
+					.hasMessageEndingWith("malformed payload");
+		}
+		assertThat(validations("invalid")).isEqualTo(4);
+	}
+
+	private long validations(String result) {
+		return registry.get("auth.token.validation").tag("result", result).timer().count();
+	}
+}
@@ -0,0 +1,50 @@
+-- Планы запросов к задачам на наполненной базе.
+-- Запуск: psql -d taskdb_bench -f task-query-plans.sql
+-- Для сравнения "до/после" выполните раз до V3__task_indexes.sql (или после DROP INDEX)
+-- и раз после, сравните Execution Time и тип узлов (Seq Scan / Index Scan).
+
+-- ============================================================
+-- Наполнение: 10 000 пользователей, ~3 000 000 задач
+-- ============================================================
+INSERT INTO users (username, password)
+SELECT 'bench_user_' || g, 'x'
+FROM generate_series(1, 10000) g
+ON CONFLICT (username) DO NOTHING;
+
+INSERT INTO task (title, status, created_by, created_at)
+SELECT 'Task ' || g,
+       (ARRAY ['OPEN', 'IN_PROGRESS', 'DONE', 'CLOSED'])[1 + (random() * 3)::int],
+       u.id,
+       now() - (random() * interval '365 days')
+FROM generate_series(1, 3000000) g
+JOIN users u ON u.username = 'bench_user_' || (1 + g % 10000);
+
+ANALYZE task;
+ANALYZE users;
+
+-- ============================================================
+-- Задачи пользователя за период (GET /tasks?userId=&from=&to=), первая страница
+-- ============================================================
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM task
+WHERE created_by = (SELECT id FROM users WHERE username = 'bench_user_42')
+  AND created_at >= now() - interval '30 days'
+  AND created_at <= now()
+ORDER BY created_at DESC, id DESC
+LIMIT 51;
+
+-- ============================================================
+-- Все задачи без фильтра по пользователю (GET /tasks), первая страница
+-- ============================================================
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM task
+ORDER BY created_at DESC, id DESC
+LIMIT 51;
+
+-- ============================================================
+-- Подсчёт активных задач (сверка users.active_tasks)
+-- ============================================================
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT COUNT(*) FROM task
+WHERE created_by = (SELECT id FROM users WHERE username = 'bench_user_42')
+  AND status IN ('OPEN', 'IN_PROGRESS');